@@ -0,0 +1,675 @@
+package influence;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import influence.application.model.CompactGraph;
+import influence.application.model.FacebookGraph;
+import influence.application.model.Graph;
+import influence.application.model.GraphSnapshot;
+import influence.application.model.Group;
+import influence.application.model.GroupSearch;
+import influence.application.model.SearchReport;
+import influence.application.model.SimpleTimer;
+import influence.application.model.SweepPoint;
+import influence.application.model.Vertex;
+import influence.util.ParallelGraphLoader;
+
+/**
+ * Command-line entry point of the application for the servers without display.
+ * Loads the files, searches the groups and opinion leaders and writes them
+ * with the timings to CSV or JSON. It does not use JavaFX.
+ *
+ * <pre>
+ * java influence.BatchApp [-d delimiter] [-r reductionInfluence] [-p percent]
+ *                         [-s from:to:step] [-m maxSteps] [-l maxFlips] [-q fifo|priority|parallel] [-c] [-a] [-i]
+ *                         [-w snapshot] [-k] [-f csv|json] [-o output] file...
+ * </pre>
+ *
+ * The file can also be the snapshot of the initialized graph written with -w before,
+ * then the graph is restored from it instead of loading and merging the edges.
+ *
+ * With -k the files are loaded to the compact graph, which keeps the large data in the primitive arrays,
+ * and only the opinion leaders are searched, the groups are not searched and not written.
+ *
+ * With -i the files are added one by one to the initialized graph, which is initialized again
+ * incrementally after each of them, as the new dumps are added to the analyzed data.
+ *
+ * CSV writes the files output_groups.csv, output_leaders.csv and output_timings.csv,
+ * and output_sweep.csv for the sweep of reduction of influence.
+ * JSON writes the file output.json.
+ * @author Muidinov Aider
+ *
+ */
+public class BatchApp {
+
+	private static final String USAGE =
+			"usage: java influence.BatchApp [-d delimiter] [-r reductionInfluence] [-p percent]\n"
+			+ "                               [-s from:to:step] [-m maxSteps] [-l maxFlips] [-q fifo|priority|parallel] [-c] [-a] [-i]\n"
+			+ "                               [-w snapshot] [-k] [-f csv|json] [-o output] file...\n"
+			+ "  -d  fields delimiter, default ';'\n"
+			+ "  -r  reduction of influence from 0 to 1, default 0.5\n"
+			+ "  -p  percent of popularity of opinion leaders, default 50\n"
+			+ "  -s  search groups also for each reduction of influence in the range\n"
+			+ "  -m  the largest amount of steps of the search of groups, default 0 without limit\n"
+			+ "  -l  amount of flips between two groups after which the user keeps his group, default 0 without limit\n"
+			+ "  -q  order of the queue of the search of groups, default fifo\n"
+			+ "  -c  compare the groups with the groups of the fifo order\n"
+			+ "  -a  aggregate the repeated interactions of the same pair of users while loading\n"
+			+ "  -i  add the files one by one and initialize the graph incrementally after each of them\n"
+			+ "  -w  write the snapshot of the initialized graph, it can be given later instead of the files\n"
+			+ "  -k  keep the large data in the compact graph, only the opinion leaders are searched\n"
+			+ "  -f  format of results, default csv\n"
+			+ "  -o  path of results without extension, default 'influence'";
+
+	/** fields delimiter */
+	private char delimiter = ';';
+
+	/** reduction of influence of the graph */
+	private double reductionInfluence = 0.5;
+
+	/** percent of popularity of opinion leaders */
+	private double percent = 50.0;
+
+	/** values of reduction of influence for the sweep, null without the sweep */
+	private double[] sweep = null;
+
+	/** the largest amount of steps of the search of groups, 0 without limit */
+	private int maxSteps = 0;
+
+	/** amount of flips after which the user keeps his group, 0 without limit */
+	private int maxFlips = GroupSearch.DEFAULT_MAX_FLIPS;
+
+	/** order of the queue of the search of groups */
+	private GroupSearch.Order order = GroupSearch.Order.FIFO;
+
+	/** compare the groups with the groups of the fifo order */
+	private boolean compare = false;
+
+	/** aggregate the repeated interactions while loading */
+	private boolean aggregated = false;
+
+	/** add the files one by one to the graph initialized incrementally */
+	private boolean incremental = false;
+
+	/** load the data to the compact graph without the search of groups */
+	private boolean compact = false;
+
+	/** part of users with the same group leader as in the fifo order, NaN without comparing */
+	private double agreement = Double.NaN;
+
+	/** path of the snapshot written after the initialization, null without the snapshot */
+	private String snapshot = null;
+
+	/** format of results */
+	private boolean json = false;
+
+	/** path of results without extension */
+	private String output = "influence";
+
+	/** files with data */
+	private List<String> filenames = new ArrayList<String>();
+
+	/** timings of steps in seconds */
+	private Map<String, Float> timings = new LinkedHashMap<String, Float>();
+
+	public static void main(String[] args) {
+		BatchApp app = new BatchApp();
+
+		try {
+			app.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		if (!app.run()) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads the options and the names of files
+	 * @param args arguments of command line
+	 */
+	private void parseArguments(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+
+			if (!arg.startsWith("-") || arg.length() == 1) {
+				filenames.add(arg);
+				continue;
+			}
+			if (arg.equals("-c")) {
+				compare = true;
+				continue;
+			}
+			if (arg.equals("-a")) {
+				aggregated = true;
+				continue;
+			}
+			if (arg.equals("-i")) {
+				incremental = true;
+				continue;
+			}
+			if (arg.equals("-k")) {
+				compact = true;
+				continue;
+			}
+			if (i + 1 == args.length) {
+				throw new IllegalArgumentException("missing value of option "+arg);
+			}
+
+			String value = args[++i];
+			switch (arg) {
+				case "-d":
+					if (value.length() != 1) {
+						throw new IllegalArgumentException("delimiter must be one character: "+value);
+					}
+					delimiter = value.charAt(0);
+					break;
+				case "-r":
+					reductionInfluence = parseNumber(arg, value);
+					if (reductionInfluence < 0 || reductionInfluence > 1) {
+						throw new IllegalArgumentException("reduction of influence must be from 0 to 1: "+value);
+					}
+					break;
+				case "-p":
+					percent = parseNumber(arg, value);
+					break;
+				case "-s":
+					sweep = parseRange(arg, value);
+					break;
+				case "-m":
+					maxSteps = (int) parseNumber(arg, value);
+					if (maxSteps < 0) {
+						throw new IllegalArgumentException("limit of steps must not be negative: "+value);
+					}
+					break;
+				case "-l":
+					maxFlips = (int) parseNumber(arg, value);
+					if (maxFlips < 0) {
+						throw new IllegalArgumentException("limit of flips must not be negative: "+value);
+					}
+					break;
+				case "-q":
+					if (!value.equals("fifo") && !value.equals("priority") && !value.equals("parallel")) {
+						throw new IllegalArgumentException("unknown order: "+value);
+					}
+					order = GroupSearch.Order.valueOf(value.toUpperCase(Locale.ROOT));
+					break;
+				case "-w":
+					snapshot = value;
+					break;
+				case "-f":
+					if (!value.equals("csv") && !value.equals("json")) {
+						throw new IllegalArgumentException("unknown format: "+value);
+					}
+					json = value.equals("json");
+					break;
+				case "-o":
+					output = value;
+					break;
+				default:
+					throw new IllegalArgumentException("unknown option: "+arg);
+			}
+		}
+
+		if (filenames.isEmpty()) {
+			throw new IllegalArgumentException("no files with data");
+		}
+		for (String filename : filenames) {
+			if (!new File(filename).isFile()) {
+				throw new IllegalArgumentException("file not found: "+filename);
+			}
+			if (filenames.size() > 1 && GraphSnapshot.isSnapshot(filename)) {
+				throw new IllegalArgumentException("snapshot must be the only file: "+filename);
+			}
+			if (incremental && GraphSnapshot.isSnapshot(filename)) {
+				throw new IllegalArgumentException("snapshot can not be initialized incrementally: "+filename);
+			}
+			if (compact && GraphSnapshot.isSnapshot(filename)) {
+				throw new IllegalArgumentException("compact graph can not be restored from the snapshot: "+filename);
+			}
+		}
+		// the compact graph does not search the groups and always merges the repeated interactions
+		if (compact && (sweep != null || maxSteps != 0 || maxFlips != GroupSearch.DEFAULT_MAX_FLIPS
+				|| order != GroupSearch.Order.FIFO || compare || aggregated || incremental || snapshot != null)) {
+			throw new IllegalArgumentException("options -s, -m, -l, -q, -c, -a, -i and -w can not be used with -k");
+		}
+	}
+
+	/**
+	 * Parses the numeric value of the option
+	 * @param option name of option
+	 * @param value value of option
+	 * @return number
+	 */
+	private static double parseNumber(String option, String value) {
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("value of option "+option+" is not a number: "+value);
+		}
+	}
+
+	/**
+	 * Parses the range of reduction of influence
+	 * @param option name of option
+	 * @param value range as from:to:step
+	 * @return values of the range
+	 */
+	private static double[] parseRange(String option, String value) {
+		String[] parts = value.split(":");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("range must be from:to:step: "+value);
+		}
+
+		double from = parseNumber(option, parts[0]);
+		double to = parseNumber(option, parts[1]);
+		double step = parseNumber(option, parts[2]);
+		if (from < 0 || to > 1 || from > to || step <= 0) {
+			throw new IllegalArgumentException("range must be within 0 and 1 with positive step: "+value);
+		}
+
+		// the small tolerance keeps the last value despite the rounding of steps
+		int amount = (int) Math.floor((to - from) / step + 1e-9) + 1;
+		double[] values = new double[amount];
+		for (int i = 0; i < amount; i++) {
+			values[i] = Math.round((from + i * step) * 1e9) / 1e9;
+		}
+
+		return values;
+	}
+
+	/**
+	 * Analyzes the data and writes the results
+	 * @return true if the results were written
+	 */
+	private boolean run() {
+		if (compact) {
+			return runCompact();
+		}
+
+		SimpleTimer total = new SimpleTimer();
+		SimpleTimer timer = new SimpleTimer();
+		FacebookGraph graph = new FacebookGraph();
+		graph.setReductionInfluence(reductionInfluence);
+		graph.setMaxSteps(maxSteps);
+		graph.setMaxFlips(maxFlips);
+		graph.setSearchOrder(order);
+		graph.setAggregated(aggregated);
+		graph.setIncremental(incremental);
+
+		total.start(null);
+
+		timer.start("Loading "+filenames.size()+" file(s)...\n");
+		if (GraphSnapshot.isSnapshot(filenames.get(0))) {
+			if (!GraphSnapshot.load(graph, filenames.get(0))) {
+				return false;
+			}
+			// the groups of the snapshot are kept only for the same reduction of influence
+			if (graph.getReductionInfluence() != reductionInfluence) {
+				graph.setReductionInfluence(reductionInfluence);
+			}
+		} else if (incremental) {
+			// each file before the last is initialized, then the last one is added to the initialized graph
+			for (int i = 0; i < filenames.size(); i++) {
+				if (i > 0) {
+					graph.initialize();
+				}
+				ParallelGraphLoader.loadGraph(graph, filenames.subList(i, i + 1), delimiter);
+			}
+		} else {
+			ParallelGraphLoader.loadGraph(graph, filenames, delimiter);
+		}
+		timer.finish("...loading is finished");
+		timings.put("loading", timer.secResult());
+
+		timer.start("Initialization of graph...\n");
+		graph.initialize();
+		timer.finish("...initialization is finished");
+		timings.put("initialization", timer.secResult());
+		System.out.println(graph.getSearch().getReport());
+
+		if (snapshot != null) {
+			timer.start("Saving of snapshot...\n");
+			if (!GraphSnapshot.save(graph, snapshot)) {
+				return false;
+			}
+			timer.finish("...saving is finished");
+			timings.put("snapshot", timer.secResult());
+		}
+
+		timer.start(null);
+		List<Group> groups = graph.getSortedGroups();
+		List<Vertex> leaders = graph.getOpinionLeaders(percent);
+		timer.finish(null);
+		timings.put("opinion leaders", timer.secResult());
+
+		if (compare) {
+			timer.start("Search of groups in the fifo order...\n");
+			GroupSearch fifo = new GroupSearch(graph, reductionInfluence);
+			fifo.setMaxSteps(maxSteps);
+			fifo.setMaxFlips(maxFlips);
+			fifo.searchGroups();
+			agreement = graph.getSearch().agreement(fifo);
+			timer.finish("...agreement "+agreement);
+			timings.put("fifo search", timer.secResult());
+		}
+
+		List<SweepPoint> points = null;
+		if (sweep != null) {
+			timer.start("Sweep of "+sweep.length+" values of reduction of influence...\n");
+			points = graph.sweepInfluence(sweep);
+			timer.finish("...sweep is finished");
+			timings.put("sweep", timer.secResult());
+		}
+
+		total.finish(null);
+		timings.put("total", total.secResult());
+
+		try {
+			if (json) {
+				writeJson(graph, graph.getSearch().getReport(), groups, leaders, points, output+".json");
+			} else {
+				writeGroups(groups, output+"_groups.csv");
+				writeLeaders(leaders, output+"_leaders.csv");
+				writeTimings(graph, graph.getSearch().getReport(), leaders, output+"_timings.csv");
+				if (points != null) {
+					writeSweep(points, output+"_sweep.csv");
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+
+		System.out.println("Amount of opinion leaders "+leaders.size()+" out of "+graph.size()+" users, "
+				+groups.size()+" groups");
+
+		return true;
+	}
+
+	/**
+	 * Analyzes the data in the compact graph and writes the opinion leaders
+	 * @return true if the results were written
+	 */
+	private boolean runCompact() {
+		SimpleTimer total = new SimpleTimer();
+		SimpleTimer timer = new SimpleTimer();
+		CompactGraph graph = new CompactGraph();
+
+		total.start(null);
+
+		timer.start("Loading "+filenames.size()+" file(s) to the compact graph...\n");
+		ParallelGraphLoader.loadGraph(graph, filenames, delimiter);
+		timer.finish("...loading is finished");
+		timings.put("loading", timer.secResult());
+
+		timer.start("Initialization of graph...\n");
+		graph.initialize();
+		timer.finish("...initialization is finished");
+		timings.put("initialization", timer.secResult());
+
+		timer.start(null);
+		List<Vertex> leaders = graph.getOpinionLeaders(percent);
+		timer.finish(null);
+		timings.put("opinion leaders", timer.secResult());
+
+		total.finish(null);
+		timings.put("total", total.secResult());
+
+		try {
+			if (json) {
+				writeJson(graph, null, null, leaders, null, output+".json");
+			} else {
+				writeLeaders(leaders, output+"_leaders.csv");
+				writeTimings(graph, null, leaders, output+"_timings.csv");
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+
+		System.out.println("Amount of opinion leaders "+leaders.size()+" out of "+graph.size()+" users");
+
+		return true;
+	}
+
+	/**
+	 * Opens the file for writing in UTF-8
+	 * @param filename path to the file
+	 * @return writer
+	 * @throws IOException
+	 */
+	private static PrintWriter openFile(String filename) throws IOException {
+		return new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(filename), StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Writes the groups to CSV
+	 * @param groups groups sorted by size
+	 * @param filename path to the file
+	 * @throws IOException
+	 */
+	private void writeGroups(List<Group> groups, String filename) throws IOException {
+		try (PrintWriter out = openFile(filename)) {
+			out.println("leader,size,rank");
+			for (Group g : groups) {
+				out.println(csv(g.getLeader().getId())+","+g.size()+","+g.getRank());
+			}
+		}
+	}
+
+	/**
+	 * Writes the opinion leaders to CSV
+	 * @param leaders opinion leaders
+	 * @param filename path to the file
+	 * @throws IOException
+	 */
+	private void writeLeaders(List<Vertex> leaders, String filename) throws IOException {
+		try (PrintWriter out = openFile(filename)) {
+			out.println("user,popularity,rank");
+			for (Vertex v : leaders) {
+				out.println(csv(v.getId())+","+v.getPopularity()+","+v.getRank());
+			}
+		}
+	}
+
+	/**
+	 * Writes the parameters, the totals and the timings to CSV
+	 * @param graph graph
+	 * @param report report of the search of groups, null for the compact graph
+	 * @param leaders opinion leaders
+	 * @param filename path to the file
+	 * @throws IOException
+	 */
+	private void writeTimings(Graph graph, SearchReport report, List<Vertex> leaders, String filename) throws IOException {
+		try (PrintWriter out = openFile(filename)) {
+			out.println("name,value");
+			out.println("reduction influence,"+reductionInfluence);
+			out.println("percent,"+percent);
+			out.println("users,"+graph.size());
+			out.println("edges,"+graph.getAmountEdges());
+			out.println("opinion leaders,"+leaders.size());
+			if (report != null) {
+				out.println("search order,"+order);
+				out.println("search status,"+report.getStatus());
+				out.println("search steps,"+report.getAmountSteps());
+				out.println("search changes,"+report.getAmountChanges());
+				out.println("search rounds,"+report.getAmountRounds());
+				out.println("peak queue,"+report.getPeakQueue());
+				out.println("oscillating users,"+report.getOscillating().size());
+			}
+			if (compare) {
+				out.println("agreement with fifo,"+agreement);
+			}
+			for (Map.Entry<String, Float> t : timings.entrySet()) {
+				out.println(t.getKey()+" sec,"+t.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Writes the results of the sweep to CSV
+	 * @param points results for each value of reduction of influence
+	 * @param filename path to the file
+	 * @throws IOException
+	 */
+	private void writeSweep(List<SweepPoint> points, String filename) throws IOException {
+		try (PrintWriter out = openFile(filename)) {
+			out.println("reduction influence,groups,largest group,steps,changes,status,sec");
+			for (SweepPoint p : points) {
+				out.println(p.getReductionInfluence()+","+p.getAmountGroups()+","+p.getLargestGroup()+","
+						+p.getAmountSteps()+","+p.getAmountChanges()+","+p.getStatus()+","+p.getSecResult());
+			}
+		}
+	}
+
+	/**
+	 * Writes all results to one JSON file
+	 * @param graph graph
+	 * @param report report of the search of groups, null for the compact graph
+	 * @param groups groups sorted by size, null for the compact graph
+	 * @param leaders opinion leaders
+	 * @param points results of the sweep or null
+	 * @param filename path to the file
+	 * @throws IOException
+	 */
+	private void writeJson(Graph graph, SearchReport report, List<Group> groups, List<Vertex> leaders,
+			List<SweepPoint> points, String filename) throws IOException {
+		try (PrintWriter out = openFile(filename)) {
+			out.println("{");
+			out.print("  \"files\": [");
+			String coma = "";
+			for (String f : filenames) {
+				out.print(coma+json(f));
+				coma = ", ";
+			}
+			out.println("],");
+			out.println("  \"reductionInfluence\": "+reductionInfluence+",");
+			out.println("  \"percent\": "+percent+",");
+			out.println("  \"users\": "+graph.size()+",");
+			out.println("  \"edges\": "+graph.getAmountEdges()+",");
+
+			out.println("  \"timings\": {");
+			coma = "";
+			for (Map.Entry<String, Float> t : timings.entrySet()) {
+				out.print(coma+"    "+json(t.getKey())+": "+t.getValue());
+				coma = ",\n";
+			}
+			out.println("\n  },");
+
+			if (report != null) {
+				out.println("  \"search\": {\"order\": \""+order+"\", \"status\": \""+report.getStatus()+"\", \"steps\": "+report.getAmountSteps()
+						+", \"changes\": "+report.getAmountChanges()+", \"roundChanges\": "+report.getRoundChanges()
+						+", \"peakQueue\": "+report.getPeakQueue()+", \"oscillatingUsers\": "+report.getOscillating().size()
+						+(compare ? ", \"agreement\": "+number(agreement) : "")+"},");
+			}
+
+			if (groups != null) {
+				out.println("  \"groups\": [");
+				coma = "";
+				for (Group g : groups) {
+					out.print(coma+"    {\"leader\": "+json(g.getLeader().getId())
+							+", \"size\": "+g.size()+", \"rank\": "+number(g.getRank())+"}");
+					coma = ",\n";
+				}
+				out.println("\n  ],");
+			}
+
+			out.println("  \"opinionLeaders\": [");
+			coma = "";
+			for (Vertex v : leaders) {
+				out.print(coma+"    {\"user\": "+json(v.getId())
+						+", \"popularity\": "+number(v.getPopularity())+", \"rank\": "+number(v.getRank())+"}");
+				coma = ",\n";
+			}
+			out.print("\n  ]");
+
+			if (points != null) {
+				out.println(",");
+				out.println("  \"sweep\": [");
+				coma = "";
+				for (SweepPoint p : points) {
+					out.print(coma+"    {\"reductionInfluence\": "+p.getReductionInfluence()
+							+", \"groups\": "+p.getAmountGroups()+", \"largestGroup\": "+p.getLargestGroup()
+							+", \"steps\": "+p.getAmountSteps()+", \"changes\": "+p.getAmountChanges()
+							+", \"status\": \""+p.getStatus()+"\""
+							+", \"sec\": "+p.getSecResult()+"}");
+					coma = ",\n";
+				}
+				out.print("\n  ]");
+			}
+			out.println();
+			out.println("}");
+		}
+	}
+
+	/**
+	 * Quotes the value for CSV if it is necessary
+	 * @param value value
+	 * @return value for CSV
+	 */
+	private static String csv(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+				&& value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+
+		return "\""+value.replace("\"", "\"\"")+"\"";
+	}
+
+	/**
+	 * Creates the JSON string
+	 * @param value value
+	 * @return quoted and escaped value
+	 */
+	private static String json(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if (c < 0x20) {
+						sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+		sb.append('"');
+
+		return sb.toString();
+	}
+
+	/**
+	 * Creates the JSON number, JSON has no infinity and NaN
+	 * @param value value
+	 * @return number or null
+	 */
+	private static String number(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) return "null";
+
+		return String.valueOf(value);
+	}
+}
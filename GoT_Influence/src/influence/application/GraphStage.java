@@ -1,10 +1,13 @@
 package influence.application;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import influence.MainApp;
 import influence.application.controller.ApplicationOverviewController;
 import influence.application.model.FacebookGraph;
+import influence.application.model.Group;
 import influence.application.view.helpers.GroupInfo;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -25,8 +28,8 @@ public class GraphStage {
     /** access to the graph model */
     private FacebookGraph graph;
     
-    /** path to a file data */
-    private String filename;
+    /** paths to the files of data, they are loaded into one graph */
+    private List<String> filenames = new ArrayList<String>();
     
     /** the data observed in the form of a list of groups. */
     private ObservableList<GroupInfo> groupInfoData = FXCollections.observableArrayList();
@@ -99,19 +102,19 @@ public class GraphStage {
 	}
 	
 	/**
-	 * Get current filename
-	 * @return filename
+	 * Get current files of data
+	 * @return paths to the files
 	 */
-	public String getFilename() {
-		return filename;
+	public List<String> getFilenames() {
+		return filenames;
 	}
 
 	/**
-	 * Set new filename
-	 * @param filename new filename
+	 * Set new files of data
+	 * @param filenames paths to the files
 	 */
-	public void setFilename(String filename) {
-		this.filename = filename;
+	public void setFilenames(List<String> filenames) {
+		this.filenames = filenames;
 	}
 	
 	/**
@@ -127,15 +130,36 @@ public class GraphStage {
 	 * @return group data
 	 */
 	public ObservableList<GroupInfo> getGroupInfoData() {
+		return setGroupInfoData(collectGroupInfo());
+	}
+	
+	/**
+	 * Replaces the group data. It is called in the application thread.
+	 * @param groupInfo new group data
+	 * @return group data
+	 */
+	public ObservableList<GroupInfo> setGroupInfoData(List<GroupInfo> groupInfo) {
 		
-		// remove the current data
-		groupInfoData.clear();
-		
-		// It receives data from the model and place them on the form
-		groupInfoData.addAll(graph.getGroupsInfo());
+		// remove the current data and place the new ones on the form
+		groupInfoData.setAll(groupInfo);
 		
 		return groupInfoData;
 	}
+	
+	/**
+	 * Collects group data from model graph. It can be called in the background thread.
+	 * @return group data
+	 */
+	public List<GroupInfo> collectGroupInfo() {
+		List<GroupInfo> groupInfo = new ArrayList<GroupInfo>();
+		
+		// It receives data from the model
+		for (Group g : graph.getSortedGroups()) {
+			groupInfo.add(new GroupInfo(g.getLeader().getId(), String.valueOf(g.size())));
+		}
+		
+		return groupInfo;
+	}
 
 
 }
@@ -2,17 +2,27 @@ package influence.application.controller;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import influence.MainApp;
 import influence.application.GraphStage;
+import influence.application.model.FacebookGraph;
+import influence.application.model.GraphSnapshot;
 import influence.application.model.SimpleTimer;
 import influence.application.model.Vertex;
 import influence.application.view.GraphView;
 import influence.application.view.helpers.GroupInfo;
 import influence.application.view.layout.GraphLayout;
-import influence.util.GraphLoader;
+import influence.util.ParallelGraphLoader;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
@@ -58,6 +68,20 @@ public class ApplicationOverviewController implements Initializable {
 	/** main panel on which is located the graph elements */
 	private GraphView graphView;
 	
+	/** background thread of the work with the model, the tasks are executed one by one,
+	 * so the model is never changed during its analysis */
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "graph-analysis");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	/** amount of the tasks which are not finished yet */
+	private final AtomicInteger pendingTasks = new AtomicInteger();
+	
+	/** the current showing of the graph or null */
+	private ShowGraphTask showTask;
+	
 	@Override
 	public void initialize(URL location, ResourceBundle resources) {
 		// define the rules for filling in table groups
@@ -82,12 +106,13 @@ public class ApplicationOverviewController implements Initializable {
 		// get access
 		this.graphStage = graphStage;
 		
-		// set the current filename
-		filenameField.setText(graphStage.getFilename());
+		// set the current files
+		filenameField.setText(filenamesText(graphStage.getFilenames()));
 		
 		// create a basic pane graph
 		graphView = new GraphView(graphStage.getGraph());
 		graphPane.getChildren().add(graphView);
+		graphView.setOnMouseClicked(e -> handleGraphClick(e));
 		
 		//set the current value of influence factor
 		influenceSlider.setValue(graphStage.getGraph().getReductionInfluence()*100);
@@ -114,7 +139,7 @@ public class ApplicationOverviewController implements Initializable {
 	 * @param group selected group
 	 */
 	private void showLinkGroup(GroupInfo group) {
-		if (graphView == null) return;
+		if (graphView == null || isBusy()) return;
 		
 		if (group != null) {
 			graphView.selectGroup(group.getLeader().get());
@@ -122,52 +147,96 @@ public class ApplicationOverviewController implements Initializable {
 	}
 	
 	/**
-	 * Initialization and drawing the graph.
+	 * Initialization and drawing the graph. The model is initialized and the elements 
+	 * are built and laid out in the background, only the ready elements are added 
+	 * to the form in the application thread.
 	 */
 	public void showGraph() {
-		SimpleTimer timer = new SimpleTimer();
-		
-		timer.start("Initialising graph...\n");
-		graphStage.getGraph().initialize();
-		timer.finish("DONE");
+		cancelShowGraph();
 		
 		groupTable.getItems().clear();
-		groupTable.setItems(this.graphStage.getGroupInfoData());
 		
-		timer.start("Updating graph...\n");
-		graphView.update();
-		timer.finish("DONE");
+		ShowGraphTask task = new ShowGraphTask();
+		percentLeadersLabel.textProperty().bind(task.messageProperty());
 		
-		GraphLayout graphLayout = new GraphLayout(graphView);
-		
-		timer.start("Showing graph...\n");
-		graphLayout.showGraph();
-		timer.finish("DONE");
+		task.setOnSucceeded(e -> {
+			percentLeadersLabel.textProperty().unbind();
+			
+			groupTable.setItems(graphStage.setGroupInfoData(task.groupInfo));
+			graphView.commitView();
+			
+			showOpinionLeaders(task.opinionLeaders, task.size);
+		});
+		task.setOnCancelled(e -> {
+			percentLeadersLabel.textProperty().unbind();
+			percentLeadersLabel.setText("Cancelled, waiting for updates...");
+		});
+		task.setOnFailed(e -> {
+			percentLeadersLabel.textProperty().unbind();
+			percentLeadersLabel.setText("Failed: "+task.getException());
+			task.getException().printStackTrace();
+		});
 		
-		showOpinionLeaders();
+		showTask = task;
+		execute(task);
+	}
+	
+	/**
+	 * Cancels the current showing of the graph. The step of the analysis, 
+	 * which is running, is finished, but the next steps are not started
+	 * and the elements are not shown.
+	 */
+	private void cancelShowGraph() {
+		if (showTask != null) {
+			showTask.cancel(false);
+			showTask = null;
+		}
+	}
+	
+	/**
+	 * Executes the task in the background thread after the previous tasks
+	 * @param task task
+	 */
+	private void execute(Task<?> task) {
+		pendingTasks.incrementAndGet();
+		executor.execute(() -> {
+			try {
+				task.run();
+			} finally {
+				pendingTasks.decrementAndGet();
+			}
+		});
+	}
+	
+	/**
+	 * It determines whether the model is used in the background
+	 * @return true if some tasks are not finished yet
+	 */
+	private boolean isBusy() {
+		return pendingTasks.get() > 0;
 	}
 	
 	/**
 	 * Displays in the console a list of opinion leaders, 
 	 * and considers them a percentage of the total number of users
+	 * @param opinionLeaders opinion leaders
+	 * @param size amount of users
 	 */
-	private void showOpinionLeaders() {
-		int size = graphStage.getGraph().size();
-		
+	private void showOpinionLeaders(List<Vertex> opinionLeaders, int size) {
 		if (size == 0) return;
 		
-		List<Vertex> opinionLeaders = graphStage.getGraph().getOpinionLeaders(50.0);
-		Double percentLeaders = 100.0 * opinionLeaders.size() / graphStage.getGraph().size();
+		Double percentLeaders = 100.0 * opinionLeaders.size() / size;
 		
 		percentLeadersLabel.setText("Total percent of opinion leaders: "+String.format("%(.2f", percentLeaders)+" %");
 		
 		for (Vertex v : opinionLeaders) System.out.println(v.getId()+" (pop:"+v.getPopularity()+")");
 		System.out.println("============== TOTAL ==============");
-		System.out.println("Amount of opinion leaders "+opinionLeaders.size()+" out of "+graphStage.getGraph().size()+" users ("+percentLeaders+" %)");
+		System.out.println("Amount of opinion leaders "+opinionLeaders.size()+" out of "+size+" users ("+percentLeaders+" %)");
 	}
 	
 	/**
-	 * Handler for file selection
+	 * Handler for file selection. Several files can be selected, 
+	 * they are loaded into one graph.
 	 */
 	@FXML
 	private void handleChooseFile() {
@@ -175,40 +244,96 @@ public class ApplicationOverviewController implements Initializable {
 		
 		FileChooser.ExtensionFilter extFilter = new FileChooser.ExtensionFilter("TXT files (*.txt)", "*.txt");
 		fileChooser.getExtensionFilters().add(extFilter);
+		FileChooser.ExtensionFilter snapshotFilter = new FileChooser.ExtensionFilter(
+				"Snapshots (*"+GraphSnapshot.EXTENSION+")", "*"+GraphSnapshot.EXTENSION);
+		fileChooser.getExtensionFilters().add(snapshotFilter);
 		
-		File file = fileChooser.showOpenDialog(graphStage.getPrimaryStage());
+		List<File> files = fileChooser.showOpenMultipleDialog(graphStage.getPrimaryStage());
 		
-		if (file != null) {
-			graphStage.setFilename(file.getAbsolutePath());
-			filenameField.setText(graphStage.getFilename());
+		if (files != null && !files.isEmpty()) {
+			List<String> paths = new ArrayList<String>();
+			for (File file : files) paths.add(file.getAbsolutePath());
+			
+			cancelShowGraph();
+			graphStage.setFilenames(paths);
+			filenameField.setText(filenamesText(paths));
 			showGraphButton.setDisable(true);
 		}
 	}
 	
 	/**
-	 * Handler for manual editing of the file path
+	 * Handler for manual editing of the file path. The edited field gives one file,
+	 * several files are selected only by the dialog.
 	 */
 	@FXML
 	private void handleEditPath() {
-		graphStage.setFilename(filenameField.getText());
+		cancelShowGraph();
+		if (!filenameField.getText().equals(filenamesText(graphStage.getFilenames()))) {
+			graphStage.setFilenames(Collections.singletonList(filenameField.getText()));
+		}
 		showGraphButton.setDisable(true);
 	}
 	
+	/**
+	 * Gets the text of the field of files
+	 * @param filenames paths to the files
+	 * @return paths separated by commas
+	 */
+	private static String filenamesText(List<String> filenames) {
+		return String.join(", ", filenames);
+	}
+	
 	/**
 	 * Data load handler. Called when a click on the "Download Data" button.
+	 * The data are loaded in the background after the current analysis.
 	 */
 	@FXML
 	private void handleLoadData() {
-		// graph remove before loading data
-		graphStage.getGraph().clear();
+		cancelShowGraph();
+		showGraphButton.setDisable(true);
 		
-		// download new data
-		GraphLoader.loadGraph(graphStage.getGraph(), graphStage.getFilename(), ";");
+		final FacebookGraph graph = graphStage.getGraph();
+		final List<String> filenames = new ArrayList<String>(graphStage.getFilenames());
 		
-		// if any data has been loaded, it makes available the button "Show graph"
-		if (graphStage.getGraph().size() != 0) {
-			showGraphButton.setDisable(false);
-		}
+		Task<Integer> task = new Task<Integer>() {
+
+			@Override
+			protected Integer call() throws Exception {
+				updateMessage("Loading data...");
+				
+				// graph remove before loading data
+				graph.clear();
+				
+				// download new data, the selected files are loaded into one graph
+				if (filenames.size() == 1 && GraphSnapshot.isSnapshot(filenames.get(0))) {
+					// the snapshot is restored with the merged edges, ranks and groups
+					GraphSnapshot.load(graph, filenames.get(0));
+				} else {
+					ParallelGraphLoader.loadGraph(graph, filenames, ';');
+				}
+				
+				return graph.size();
+			}
+			
+		};
+		
+		percentLeadersLabel.textProperty().bind(task.messageProperty());
+		task.setOnSucceeded(e -> {
+			percentLeadersLabel.textProperty().unbind();
+			percentLeadersLabel.setText("Waiting for updates...");
+			
+			// if any data has been loaded, it makes available the button "Show graph"
+			if (task.getValue() != 0) {
+				showGraphButton.setDisable(false);
+			}
+		});
+		task.setOnFailed(e -> {
+			percentLeadersLabel.textProperty().unbind();
+			percentLeadersLabel.setText("Failed: "+task.getException());
+			task.getException().printStackTrace();
+		});
+		
+		execute(task);
 	}
 	
 	/**
@@ -216,7 +341,7 @@ public class ApplicationOverviewController implements Initializable {
 	 */
 	@FXML
 	private void handleShowGraph() {
-		if (graphStage.getGraph().size() == 0) {
+		if (graphStage.getGraph().size() == 0 && !isBusy()) {
 			System.out.println("Graph is empty!");
 			return;
 		}
@@ -231,20 +356,55 @@ public class ApplicationOverviewController implements Initializable {
 	// simple handler mouse clicks
 	@FXML
 	private void handleMouseClick(MouseEvent event) {
-		if (event.getClickCount() == 2)
+		if (event.getClickCount() == 2 && !isBusy())
         {
 			graphView.setViewSelectedGroup(true);
         }
 	}
 	
+	/**
+	 * Handler of clicks on the graph. The group under the cursor is found by the index 
+	 * of the graph and selected in the table, a double-click shows only this group.
+	 * @param event mouse event
+	 */
+	private void handleGraphClick(MouseEvent event) {
+		if (isBusy()) return;
+		
+		String leader = graphView.findGroup(event.getX(), event.getY());
+		if (leader == null) return;
+		
+		// the listener of the table selects the group on the graph
+		for (GroupInfo info : groupTable.getItems()) {
+			if (info.getLeader().get().equals(leader)) {
+				groupTable.getSelectionModel().select(info);
+				groupTable.scrollTo(info);
+				break;
+			}
+		}
+		
+		if (event.getClickCount() == 2) {
+			graphView.setViewSelectedGroup(true);
+		}
+	}
+	
 	/**
 	 * Coefficient selection handler
 	 */
 	@FXML
 	private void slideInfluence() {
-		Double influenceReduction = influenceSlider.getValue();
+		final Double influenceReduction = influenceSlider.getValue();
 		
-		graphStage.getGraph().setReductionInfluence(influenceReduction/100);
+		// the model is changed after the current analysis, its results are not shown
+		cancelShowGraph();
+		execute(new Task<Void>() {
+
+			@Override
+			protected Void call() throws Exception {
+				graphStage.getGraph().setReductionInfluence(influenceReduction/100);
+				return null;
+			}
+			
+		});
 		
 		setTextInfluenceLabel(influenceReduction);
 	}
@@ -257,6 +417,72 @@ public class ApplicationOverviewController implements Initializable {
 		influenceLabel.setText("Force of influence ("+influenceReduction+" %)");
 	}
 	
+	/**
+	 * Background showing of the graph: the initialization of the model, 
+	 * the building of the elements and their layout. The steps of timers 
+	 * are reported as the message of the task, and the cancelled task 
+	 * stops after the current step. The old elements are removed by the task itself, 
+	 * when the previous task does not change the view any more.
+	 */
+	private class ShowGraphTask extends Task<Void> {
+		
+		/** amount of steps */
+		private static final int STEPS = 4;
+		
+		// results, they are read in the application thread when the task is succeeded
+		private List<GroupInfo> groupInfo;
+		private List<Vertex> opinionLeaders;
+		private int size;
+		
+		/** the current step */
+		private int step;
+		
+		@Override
+		protected Void call() throws Exception {
+			SimpleTimer.setListener(message -> updateMessage("["+step+"/"+STEPS+"] "+message));
+			try {
+				SimpleTimer timer = new SimpleTimer();
+				FacebookGraph graph = graphStage.getGraph();
+				
+				// the pane is changed only in the application thread, the task waits for it
+				FutureTask<Void> clear = new FutureTask<Void>(() -> graphView.clearView(), null);
+				Platform.runLater(clear);
+				clear.get();
+				if (isCancelled()) return null;
+				
+				step = 1;
+				timer.start("Initialising graph...\n");
+				graph.initialize();
+				timer.finish("DONE");
+				if (isCancelled()) return null;
+				
+				step = 2;
+				timer.start("Updating graph...\n");
+				groupInfo = graphStage.collectGroupInfo();
+				graphView.buildView();
+				timer.finish("DONE");
+				if (isCancelled()) return null;
+				
+				step = 3;
+				timer.start("Showing graph...\n");
+				new GraphLayout(graphView).showGraph();
+				timer.finish("DONE");
+				if (isCancelled()) return null;
+				
+				step = 4;
+				timer.start("Searching opinion leaders...\n");
+				opinionLeaders = graph.getOpinionLeaders(50.0);
+				size = graph.size();
+				timer.finish("DONE");
+				
+				return null;
+			} finally {
+				SimpleTimer.setListener(null);
+			}
+		}
+		
+	}
+	
 	/**
 	 * Helper class to handle the double-click. Designed only for handling double-clicking
 	 * @author Muidinov Aider
@@ -12,17 +12,17 @@ public class Adherents implements Comparable<Adherents>{
 	private Group group;
 	
 	/** total rank links all adherents */
-	private Double fullRank;
+	private double fullRank;
 	
 	/** amount of adherents */
-	private Integer amount;
+	private int amount;
 	
 	/**
 	 * The main constructor
 	 * @param group group of adherent
 	 * @param rank Rank initial connection. It may differ from the rank of adherent connection.
 	 */
-	public Adherents(Group group, Double rank) {
+	public Adherents(Group group, double rank) {
 		this.group = group;
 		this.fullRank = rank;
 		this.amount = 1;
@@ -40,7 +40,7 @@ public class Adherents implements Comparable<Adherents>{
 	 * Getting full rank
 	 * @return full rank
 	 */
-	public Double getFullRank() {
+	public double getFullRank() {
 		return fullRank;
 	}
 
@@ -48,7 +48,7 @@ public class Adherents implements Comparable<Adherents>{
 	 * Getting the number of adherents. It is necessary to calculate the average rank.
 	 * @return group the number of links
 	 */
-	public Integer getAmount() {
+	public int getAmount() {
 		return amount;
 	}
 	
@@ -56,7 +56,7 @@ public class Adherents implements Comparable<Adherents>{
 	 * Getting average rank
 	 * @return average rank
 	 */
-	public Double getRank() {
+	public double getRank() {
 		if (this.amount != 0) {
 			return fullRank/amount;
 		}
@@ -67,7 +67,7 @@ public class Adherents implements Comparable<Adherents>{
 	  * Adding the rank of new adherent
 	  * @param rank add rank
 	  */
-	public void addRank(Double rank) {
+	public void addRank(double rank) {
 		this.fullRank += rank;
 		this.amount++;
 	}
@@ -77,10 +77,7 @@ public class Adherents implements Comparable<Adherents>{
 	public int compareTo(Adherents o) {
 		Adherents a = (Adherents) o;
 
-		String str1 = this.getGroup().getLeader().getId();
-		String str2 = a.getGroup().getLeader().getId();
-		
-		return str1.compareTo(str2);
+		return this.getGroup().getLeader().compareId(a.getGroup().getLeader());
 	}
 
 }
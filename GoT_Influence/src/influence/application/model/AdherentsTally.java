@@ -0,0 +1,214 @@
+package influence.application.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable tally of the adherents in the user's personal network.
+ * It does the same as the map of {@link Adherents} by groups, but keeps
+ * the full ranks and the amounts of adherents in the primitive arrays
+ * of the open addressing table by the ordinal of the group leader.
+ * The arrays are kept between the calls, so the tally does not allocate memory
+ * once it has grown to the largest personal network.
+ * Each thread has its own tally.
+ * @author Muidinov Aider
+ *
+ */
+class AdherentsTally {
+	private static final ThreadLocal<AdherentsTally> TALLY = new ThreadLocal<AdherentsTally>() {
+
+		@Override
+		protected AdherentsTally initialValue() {
+			return new AdherentsTally();
+		}
+
+	};
+
+	/** ordinal of the group leader in each slot, -1 for the empty slot */
+	private int[] keys;
+
+	/** slot of each counted group in the order of addition */
+	private int[] slots;
+
+	private Group[] groups;
+	private double[] fullRanks;
+	private int[] amounts;
+
+	/** amount of counted groups */
+	private int size;
+
+	/** the strongest group and the average rank of its adherents */
+	private Group mainGroup;
+	private double mainRank;
+
+	private AdherentsTally() {
+		allocate(16);
+	}
+
+	/**
+	 * Gets the tally of the current thread
+	 * @return tally
+	 */
+	static AdherentsTally get() {
+		return TALLY.get();
+	}
+
+	/**
+	 * Counts the adherents of the user and finds the strongest of them.
+	 * The own group of the user is counted first with the rank of his link,
+	 * then the groups of the personal network with the ranks of their links
+	 * reduced by the factor of influence. The group with the highest full rank wins,
+	 * for the equal ranks the group with the smallest id of leader wins.
+	 * If no rank is positive, the user keeps his group.
+	 * @param link link of the user
+	 * @param search search of groups
+	 */
+	void count(Link link, GroupSearch search) {
+		clear();
+
+		Group group = link.getGroup();
+		double reduction = search.getReductionInfluence();
+		add(group, link.getRank());
+		mainGroup = group;
+		mainRank = link.getRank();
+
+		// the edges are the random access list, so it is read without the iterator
+		List<Edge> egonet = search.getGraph().getEgonet(link.getFollower());
+		for (int i = 0, n = egonet.size(); i < n; i++) {
+			Link adherent = search.findLink(egonet.get(i).getEnd());
+			add(adherent.getGroup(), adherent.getRank() * reduction);
+		}
+
+		// find the adherents with the highest rank
+		double maxRank = 0.00;
+		Group maxGroup = null;
+		int maxSlot = -1;
+		for (int i = 0; i < size; i++) {
+			int slot = slots[i];
+			double currRank = fullRanks[slot];
+			if (currRank > maxRank || (currRank == maxRank && maxGroup != null
+					&& before(groups[slot].getLeader(), maxGroup.getLeader()))) {
+				maxRank = currRank;
+				maxGroup = groups[slot];
+				maxSlot = slot;
+			}
+		}
+
+		if (maxGroup != null) {
+			mainGroup = maxGroup;
+			mainRank = fullRanks[maxSlot] / amounts[maxSlot];
+		}
+	}
+
+	/**
+	 * Gets the strongest group found by the last count
+	 * @return group
+	 */
+	Group getMainGroup() {
+		return mainGroup;
+	}
+
+	/**
+	 * Gets the average rank of the adherents of the strongest group
+	 * @return average rank
+	 */
+	double getMainRank() {
+		return mainRank;
+	}
+
+	/**
+	 * Checks the order of leaders, which is the order of ids
+	 * @return true if the leader a is before the leader b
+	 */
+	private static boolean before(Vertex a, Vertex b) {
+		if (a.getOrdinal() != b.getOrdinal()) {
+			return a.getOrdinal() < b.getOrdinal();
+		}
+		return a.compareId(b) < 0;
+	}
+
+	/**
+	 * Adds the rank of adherent to his group
+	 * @param group group of adherent
+	 * @param rank rank of adherent
+	 */
+	private void add(Group group, double rank) {
+		Vertex leader = group.getLeader();
+		int key = leader.getOrdinal();
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+
+		while (keys[slot] != -1) {
+			if (keys[slot] == key && groups[slot] == group) {
+				fullRanks[slot] += rank;
+				amounts[slot]++;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		groups[slot] = group;
+		fullRanks[slot] = rank;
+		amounts[slot] = 1;
+		slots[size++] = slot;
+
+		if (size * 2 > keys.length) {
+			grow();
+		}
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Empties the used slots only
+	 */
+	private void clear() {
+		for (int i = 0; i < size; i++) {
+			keys[slots[i]] = -1;
+			groups[slots[i]] = null;
+		}
+		size = 0;
+		mainGroup = null;
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		Arrays.fill(keys, -1);
+		slots = new int[capacity];
+		groups = new Group[capacity];
+		fullRanks = new double[capacity];
+		amounts = new int[capacity];
+	}
+
+	/**
+	 * Doubles the table keeping the order of addition
+	 */
+	private void grow() {
+		int[] oldSlots = slots;
+		Group[] oldGroups = groups;
+		double[] oldRanks = fullRanks;
+		int[] oldAmounts = amounts;
+		int oldSize = size;
+
+		allocate(keys.length * 2);
+		size = 0;
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldSize; i++) {
+			int old = oldSlots[i];
+			int key = oldGroups[old].getLeader().getOrdinal();
+			int slot = mix(key) & mask;
+			while (keys[slot] != -1) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			groups[slot] = oldGroups[old];
+			fullRanks[slot] = oldRanks[old];
+			amounts[slot] = oldAmounts[old];
+			slots[size++] = slot;
+		}
+	}
+}
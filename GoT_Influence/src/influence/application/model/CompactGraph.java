@@ -0,0 +1,574 @@
+package influence.application.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Compact representation of the graph for the large data.
+ * Names of vertices are interned to the symbol table and get the dense int ids once,
+ * and the merged edges are stored as compressed sparse rows
+ * of primitive arrays instead of the sets of edges for each vertex.
+ * The graph calculates the same ranks of edges and vertices as FacebookGraph,
+ * but it does not search the groups. Vertices and edges returned
+ * by the graph are created on demand and do not change the graph.
+ * @author Muidinov Aider
+ *
+ */
+public class CompactGraph implements Graph {
+
+	/** the maximum number of vertices, ids of vertices are packed into the keys of edges */
+	public static final int MAX_VERTICES = Edge.MAX_VERTICES;
+
+	/** initial capacity of the arrays */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/** all types of edges by their ordinal */
+	private static final Type[] TYPES = Type.values();
+
+	/** types of edges in the order in which they are merged */
+	private static final Type[] MERGE_ORDER = mergeOrder();
+
+	/** names of vertices, the symbols are given in the order of addition */
+	private SymbolTable names;
+
+	/** dense ids of vertices by the symbols of their names */
+	private int[] ids;
+
+	/** symbols of names of vertices by their ids */
+	private int[] symbols;
+
+	/** total number of vertices */
+	private int amountVertices;
+
+	// the loaded edges, they are kept until the merger
+	private int[] loadedFrom;
+	private int[] loadedTo;
+	private byte[] loadedType;
+	private int amountLoaded;
+
+	/* merged outgoing edges. The edges of vertex v are stored
+	 * from outOffsets[v] (inclusive) to outOffsets[v+1] (exclusive) */
+	private int[] outOffsets;
+	private int[] outTargets;
+	private double[] outRank;
+	private double[] outPoints;
+
+	/* merged incoming edges. For each incoming edge it is stored
+	 * his starting vertex and the index of the same outgoing edge */
+	private int[] inOffsets;
+	private int[] inSources;
+	private int[] inEdges;
+
+	// ranks of vertices by their ids
+	private double[] baseRank;
+	private double[] rank;
+	private double[] basePopularity;
+	private double[] popularity;
+
+	/** users sorted by popularity, it is built at the first search of opinion leaders */
+	private PopularityIndex popularityIndex;
+
+	/** an indication that the graph has been initialized */
+	private boolean initialized;
+
+	/**
+	 * The default constructor initializes all fields initial values
+	 */
+	public CompactGraph() {
+		this.names = new SymbolTable(INITIAL_CAPACITY);
+		this.ids = new int[INITIAL_CAPACITY];
+		this.symbols = new int[INITIAL_CAPACITY];
+		this.amountVertices = 0;
+		this.loadedFrom = new int[INITIAL_CAPACITY];
+		this.loadedTo = new int[INITIAL_CAPACITY];
+		this.loadedType = new byte[INITIAL_CAPACITY];
+		this.amountLoaded = 0;
+		this.initialized = false;
+	}
+
+	/**
+	 * Gets the value for initialized
+	 * @return initialized
+	 */
+	public boolean isInitialized() {
+		return initialized;
+	}
+
+	/**
+	 * Gets amount edges. Until the initialization it is the amount of loaded edges.
+	 * @return amount of edges
+	 */
+	public int getAmountEdges() {
+		return initialized ? outTargets.length : amountLoaded;
+	}
+
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#addVertex(java.lang.String)
+	 */
+	@Override
+	public void addVertex(String num) {
+		if (names.find(num) >= 0) return;
+
+		addVertex(names.intern(num));
+	}
+
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#addVertex(java.nio.ByteBuffer, int, int, java.nio.charset.Charset)
+	 */
+	@Override
+	public int addVertex(ByteBuffer buffer, int start, int end, Charset charset) {
+		int symbol = names.intern(buffer, start, end, charset);
+		if (symbol < amountVertices) return symbol;
+
+		addVertex(symbol);
+
+		return symbol;
+	}
+
+	/**
+	 * Gives the next id to the new name. The table keeps only the names of vertices,
+	 * so the new symbol is the amount of vertices.
+	 * @param symbol symbol of name
+	 */
+	private void addVertex(int symbol) {
+		if (amountVertices == MAX_VERTICES) {
+			throw new IllegalStateException("too many vertices in the graph");
+		}
+
+		if (amountVertices == ids.length) {
+			ids = Arrays.copyOf(ids, ids.length * 2);
+			symbols = Arrays.copyOf(symbols, symbols.length * 2);
+		}
+		ids[symbol] = amountVertices;
+		symbols[amountVertices] = symbol;
+		amountVertices++;
+
+		initialized = false;
+	}
+
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#addEdge(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void addEdge(String from, String to, String type) {
+		addEdge(from, to, Edge.getFromString(type));
+	}
+
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#addEdge(java.lang.String, java.lang.String, influence.application.model.Type)
+	 */
+	@Override
+	public void addEdge(String from, String to, Type type) {
+		if (from.isEmpty() || to.isEmpty()) return;
+
+		int begin = idOf(from);
+		int end = idOf(to);
+		if (begin < 0 || end < 0) return;
+
+		addLoaded(begin, end, type);
+	}
+
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#addEdge(int, int, influence.application.model.Type)
+	 */
+	@Override
+	public void addEdge(int from, int to, Type type) {
+		if (names.isEmpty(from) || names.isEmpty(to)) return;
+
+		addLoaded(ids[from], ids[to], type);
+	}
+
+	/**
+	 * Keeps the loaded edge until the initialization
+	 * @param begin id of vertex from which the edge goes
+	 * @param end id of vertex to which the edge goes
+	 * @param type type of interaction
+	 */
+	private void addLoaded(int begin, int end, Type type) {
+		if (amountLoaded == loadedFrom.length) {
+			loadedFrom = Arrays.copyOf(loadedFrom, amountLoaded * 2);
+			loadedTo = Arrays.copyOf(loadedTo, amountLoaded * 2);
+			loadedType = Arrays.copyOf(loadedType, amountLoaded * 2);
+		}
+		loadedFrom[amountLoaded] = begin;
+		loadedTo[amountLoaded] = end;
+		loadedType[amountLoaded] = (byte) type.ordinal();
+		amountLoaded++;
+
+		initialized = false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see influence.application.model.Graph#initialize()
+	 */
+	@Override
+	public void initialize() {
+		if (initialized) return;
+
+		SimpleTimer timer = new SimpleTimer();
+
+		timer.start("   numbering of vertices...");
+		numberVertices();
+		timer.finish("...done");
+
+		timer.start("   merging of edges...");
+		mergeEdges();
+		timer.finish("...done");
+
+		timer.start("   define ranks...");
+		defineRanks();
+		timer.finish("...done");
+
+		popularityIndex = null;
+		initialized = true;
+	}
+
+	/**
+	 * Numbers the vertices again in the order of their names, as FacebookGraph does it.
+	 * Then the merged edges are sorted by the ids of vertices in the same order
+	 * as the edges of FacebookGraph.
+	 */
+	private void numberVertices() {
+		Integer[] order = sortedIds();
+
+		int[] ordinal = new int[amountVertices];
+		int[] sortedSymbols = new int[symbols.length];
+		for (int i = 0; i < amountVertices; i++) {
+			ordinal[order[i]] = i;
+			sortedSymbols[i] = symbols[order[i]];
+			ids[sortedSymbols[i]] = i;
+		}
+		symbols = sortedSymbols;
+
+		for (int i = 0; i < amountLoaded; i++) {
+			loadedFrom[i] = ordinal[loadedFrom[i]];
+			loadedTo[i] = ordinal[loadedTo[i]];
+		}
+	}
+
+	/**
+	 * Sorts the ids of vertices in the order of their names.
+	 * The names are compared in the symbol table without creating the strings.
+	 * @return sorted ids
+	 */
+	private Integer[] sortedIds() {
+		Integer[] order = new Integer[amountVertices];
+		for (int v = 0; v < amountVertices; v++) order[v] = v;
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer v1, Integer v2) {
+				return names.compare(symbols[v1], symbols[v2]);
+			}
+
+		});
+
+		return order;
+	}
+
+	/**
+	 * Finds the id of vertex by its name
+	 * @param name name of vertex
+	 * @return id or -1 if there is no such vertex
+	 */
+	private int idOf(String name) {
+		int symbol = names.find(name);
+		return symbol < 0 ? -1 : ids[symbol];
+	}
+
+	/**
+	 * Finds the id of vertex. The vertices created by this graph keep its symbol table.
+	 * @param v vertex
+	 * @return id or -1 if there is no such vertex
+	 */
+	private int idOf(Vertex v) {
+		if (v.getNames() == names) return ids[v.getSymbol()];
+		return idOf(v.getId());
+	}
+
+	/**
+	 * Merges all loaded edges and the auxiliary edges created for them
+	 * in the same way as FacebookGraph does it. All edges of one direction
+	 * are merged in the order of names of their types.
+	 * Auxiliary edges are not created as objects, only their keys.
+	 */
+	private void mergeEdges() {
+		// each Like or Comment also gives the reverse edge
+		int amount = amountLoaded;
+		for (int i = 0; i < amountLoaded; i++) {
+			Type type = TYPES[loadedType[i]];
+			if (type == Type.LIKE || type == Type.COMMENT) amount++;
+		}
+
+		long[] keys = new long[amount];
+		int k = 0;
+		for (int i = 0; i < amountLoaded; i++) {
+			Type type = TYPES[loadedType[i]];
+			keys[k++] = Edge.key(loadedFrom[i], loadedTo[i], type);
+			if (type == Type.COMMENT) {
+				keys[k++] = Edge.key(loadedTo[i], loadedFrom[i], Type.FEEDBACK);
+			} else if (type == Type.LIKE) {
+				keys[k++] = Edge.key(loadedTo[i], loadedFrom[i], Type.GRATITUDE);
+			}
+		}
+		Arrays.sort(keys);
+
+		// the edges of one direction are next to each other
+		int amountMerged = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (i == 0 || (keys[i] >>> 3) != (keys[i-1] >>> 3)) amountMerged++;
+		}
+
+		outOffsets = new int[amountVertices + 1];
+		outTargets = new int[amountMerged];
+		outRank = new double[amountMerged];
+		outPoints = new double[amountMerged];
+
+		Vertex none = new Vertex("");
+		Edge merge = new Edge(none, none, Type.GENERAL, 0.00, 0.0);
+		int curr = -1;
+		for (int i = 0; i < keys.length; i++) {
+			Type type = MERGE_ORDER[(int) (keys[i] & 7)];
+
+			if (i == 0 || (keys[i] >>> 3) != (keys[i-1] >>> 3)) {
+				if (curr >= 0) {
+					outRank[curr] = merge.getRank();
+					outPoints[curr] = merge.getPointsPopularity();
+				}
+				curr++;
+				outTargets[curr] = (int) ((keys[i] >>> 3) & (MAX_VERTICES - 1));
+				outOffsets[(int) (keys[i] >>> 31) + 1]++;
+				// the first edge becomes the merged edge
+				merge.reset(type);
+			} else {
+				merge.mergeEdge(type);
+			}
+		}
+		if (curr >= 0) {
+			outRank[curr] = merge.getRank();
+			outPoints[curr] = merge.getPointsPopularity();
+		}
+
+		for (int v = 0; v < amountVertices; v++) {
+			outOffsets[v+1] += outOffsets[v];
+		}
+
+		// incoming edges
+		inOffsets = new int[amountVertices + 1];
+		inSources = new int[amountMerged];
+		inEdges = new int[amountMerged];
+		for (int e = 0; e < amountMerged; e++) {
+			inOffsets[outTargets[e] + 1]++;
+		}
+		for (int v = 0; v < amountVertices; v++) {
+			inOffsets[v+1] += inOffsets[v];
+		}
+		int[] position = Arrays.copyOf(inOffsets, amountVertices);
+		for (int v = 0; v < amountVertices; v++) {
+			for (int e = outOffsets[v]; e < outOffsets[v+1]; e++) {
+				int j = position[outTargets[e]]++;
+				inSources[j] = v;
+				inEdges[j] = e;
+			}
+		}
+	}
+
+	/**
+	 * Calculation of basic and full ranks for all vertices
+	 */
+	private void defineRanks() {
+		baseRank = new double[amountVertices];
+		rank = new double[amountVertices];
+		basePopularity = new double[amountVertices];
+		popularity = new double[amountVertices];
+
+		// defines the basic ranks of users
+		for (int v = 0; v < amountVertices; v++) {
+			double r = 0.00;
+			double p = 0.00;
+			for (int j = inOffsets[v]; j < inOffsets[v+1]; j++) {
+				r += outRank[inEdges[j]];
+				p += outPoints[inEdges[j]];
+			}
+			baseRank[v] = r;
+			basePopularity[v] = p;
+		}
+
+		// defines the full rank of users
+		for (int v = 0; v < amountVertices; v++) {
+			double fullRank = 0.00;
+			double fullPopularity = 0.00;
+			for (int j = inOffsets[v]; j < inOffsets[v+1]; j++) {
+				int s = inSources[j];
+				fullRank += outRank[inEdges[j]] * (1 + baseRank[s] * Vertex.RANK_FACTOR / 100.00);
+				fullPopularity += outPoints[inEdges[j]] * (1 + basePopularity[s] * Vertex.RANK_FACTOR / 100.00);
+			}
+			rank[v] = fullRank;
+			popularity[v] = fullPopularity;
+		}
+	}
+
+	/**
+	 * Creates a vertex with the current ranks
+	 * @param v id of vertex
+	 * @return vertex
+	 */
+	private Vertex vertexAt(int v) {
+		Vertex vertex;
+		if (!initialized) {
+			vertex = new Vertex(names, symbols[v]);
+		} else {
+			vertex = new Vertex(names, symbols[v], baseRank[v], rank[v], basePopularity[v], popularity[v]);
+		}
+		vertex.setOrdinal(v);
+
+		return vertex;
+	}
+
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#getVertex(java.lang.String)
+	 */
+	@Override
+	public Vertex getVertex(String id) {
+		int v = idOf(id);
+
+		return v < 0 ? null : vertexAt(v);
+	}
+
+	/**
+	 * Getting to the merged edges of the personal network.
+	 * Until the initialization the graph has no merged edges and it returns an empty list.
+	 * @param v the vertices of which are looking for the personal network
+	 * @return list of edges constituting personal network
+	 */
+	@Override
+	public List<Edge> getEgonet(Vertex v) {
+		int id = idOf(v);
+		if (id < 0 || !initialized) return new LinkedList<Edge>();
+
+		Vertex begin = vertexAt(id);
+		List<Edge> egonet = new ArrayList<Edge>(outOffsets[id+1] - outOffsets[id]);
+		for (int e = outOffsets[id]; e < outOffsets[id+1]; e++) {
+			egonet.add(new Edge(begin, vertexAt(outTargets[e]), Type.GENERAL, outRank[e], outPoints[e]));
+		}
+
+		return egonet;
+	}
+
+	/**
+	 * Getting the merged incoming edges for a given vertex.
+	 * Until the initialization the graph has no merged edges and it returns an empty list.
+	 * @param v the vertex of which are looking for the followers
+	 * @return list of incoming edges
+	 */
+	@Override
+	public List<Edge> getFollowers(Vertex v) {
+		int id = idOf(v);
+		if (id < 0 || !initialized) return new LinkedList<Edge>();
+
+		Vertex end = vertexAt(id);
+		List<Edge> followers = new ArrayList<Edge>(inOffsets[id+1] - inOffsets[id]);
+		for (int j = inOffsets[id]; j < inOffsets[id+1]; j++) {
+			int e = inEdges[j];
+			followers.add(new Edge(vertexAt(inSources[j]), end, Type.GENERAL, outRank[e], outPoints[e]));
+		}
+
+		return followers;
+	}
+
+	/**
+	 * Finds the vertices with the highest rank value.
+	 * The users are sorted by popularity once after the ranks are defined,
+	 * as in FacebookGraph, and the total popularity is summed in the order of addition,
+	 * therefore the leaders are selected in the same way.
+	 * @param percent
+	 * @return list of Vertex with opinion leaders
+	 */
+	@Override
+	public List<Vertex> getOpinionLeaders(double percent) {
+		List<Vertex> opinionLeaders = new ArrayList<Vertex>();
+		if (!initialized) return opinionLeaders;
+
+		if (popularityIndex == null) {
+			double[] popularityOfSymbols = new double[amountVertices];
+			for (int symbol = 0; symbol < amountVertices; symbol++) {
+				popularityOfSymbols[symbol] = popularity[ids[symbol]];
+			}
+			popularityIndex = new PopularityIndex(popularityOfSymbols, ids);
+		}
+
+		int amount = popularityIndex.amount(percent);
+		for (int i = 0; i < amount; i++) {
+			opinionLeaders.add(vertexAt(ids[popularityIndex.get(i)]));
+		}
+		return opinionLeaders;
+	}
+
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#exportGraph()
+	 */
+	@Override
+	public HashMap<String, HashSet<String>> exportGraph() {
+		HashMap<String, HashSet<String>> theGraph = new HashMap<String, HashSet<String>>();
+		for (int symbol = 0; symbol < amountVertices; symbol++) {
+			HashSet<String> currEdges = new HashSet<String>();
+			theGraph.put(names.name(symbol), currEdges);
+			if (initialized) {
+				int v = ids[symbol];
+				for (int e = outOffsets[v]; e < outOffsets[v+1]; e++) {
+					if (outPoints[e] > 0) {
+						currEdges.add(names.name(symbols[outTargets[e]]));
+					}
+				}
+			}
+		}
+
+		return theGraph;
+	}
+
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#printGraph()
+	 */
+	@Override
+	public void printGraph() {
+		for (int id : sortedIds()) {
+			Vertex v = vertexAt(id);
+			System.out.print("["+v.getId()+"] (rank:"+v.getRank()+"->(");
+			String coma = "";
+			for (Edge edge : getEgonet(v)) {
+				System.out.print(coma + edge.getEnd().getId());
+				coma = ",";
+			}
+			System.out.println(")");
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#size()
+	 */
+	@Override
+	public int size() {
+		return amountVertices;
+	}
+
+	/**
+	 * Gets types of edges sorted by their names
+	 * @return sorted types
+	 */
+	private static Type[] mergeOrder() {
+		Type[] types = new Type[TYPES.length];
+		for (Type type : TYPES) {
+			types[type.getOrder()] = type;
+		}
+
+		return types;
+	}
+}
@@ -1,14 +1,5 @@
 package influence.application.model;
 
-/** list of types of links */
-enum Type {
-	LIKE,
-	COMMENT,
-	FEEDBACK,
-	GRATITUDE,
-	GENERAL;
-}
-
 /**
  * Represents connection between vertices. 
  * Each edge is Like or comment per user to another. 
@@ -22,6 +13,9 @@ public class Edge implements Comparable<Edge> {
 	/** Reduction factor of influence of each subsequent Like or Comment */
 	public static final double REDUCTION_RATIO = 0.9;
 	
+	/** the maximum number of vertices, their ordinals are packed into the keys of edges */
+	public static final int MAX_VERTICES = 1 << 28;
+	
 	/** starting vertex of edge */
 	private Vertex begin;
 	
@@ -32,13 +26,22 @@ public class Edge implements Comparable<Edge> {
 	private Type type;
 	
 	/** edge rank to calculate the influence */
-	private Double rank;
+	private double rank;
 	
 	/** popularity points, which gives the Like or Comment */
-	private Double pointsPopularity;
+	private double pointsPopularity;
 	
 	/** properties edge used in calculating the grade */
-	private Double koefRank;
+	private double koefRank;
+	
+	/** amount of the same interactions, which the loaded edge stands for */
+	private int amount;
+	
+	/** key for sorting, it packs the ordinals of vertices and the order of type */
+	private long key;
+	
+	/** hash code of edge, it depends only on the vertices as the equality of edges */
+	private int hash;
 
 	/**
 	 * The main constructor edge. Creates an edge on the string 
@@ -62,6 +65,8 @@ public class Edge implements Comparable<Edge> {
 		this.rank = e.getRank();
 		this.pointsPopularity = e.getPointsPopularity();
 		this.koefRank = e.getKoefRank();
+		this.amount = 1;
+		defineKey();
 	}
 	
 	/**
@@ -72,11 +77,73 @@ public class Edge implements Comparable<Edge> {
 	 * @param nameType name of new type
 	 */
 	public Edge(Vertex begin, Vertex end, String nameType) {
+		this(begin, end, Edge.getFromString(nameType));
+	}
+	
+	/**
+	 * Support edge constructor. It creates a new edge of the given type.
+	 * @param begin starting vertex
+	 * @param end finishing vertex
+	 * @param type type of edge
+	 */
+	public Edge(Vertex begin, Vertex end, Type type) {
 		this.begin = begin;
 		this.end = end;
-		this.type = Edge.getFromString(nameType);
+		this.type = type;
 		this.koefRank = 1.00;
+		this.amount = 1;
 		defineRankOptions();
+		defineKey();
+	}
+	
+	/**
+	 * Support edge constructor. Creates an edge with the already 
+	 * calculated values of the rank and popularity points.
+	 * @param begin starting vertex
+	 * @param end finishing vertex
+	 * @param type type of edge
+	 * @param rank rank of edge
+	 * @param pointsPopularity popularity points of edge
+	 */
+	Edge(Vertex begin, Vertex end, Type type, double rank, double pointsPopularity) {
+		this.begin = begin;
+		this.end = end;
+		this.type = type;
+		this.koefRank = 1.00;
+		this.rank = rank;
+		this.pointsPopularity = pointsPopularity;
+		this.amount = 1;
+		defineKey();
+	}
+	
+	/**
+	 * Packs the edge into the key. Keys are sorted by the starting vertex, 
+	 * then by the finishing vertex and then by the name of type. 
+	 * Ordinals of vertices must be less than MAX_VERTICES.
+	 * @param from ordinal of starting vertex
+	 * @param to ordinal of finishing vertex
+	 * @param type type of edge
+	 * @return key of edge
+	 */
+	static long key(int from, int to, Type type) {
+		return ((long) from << 31) | ((long) to << 3) | type.getOrder();
+	}
+	
+	/**
+	 * Defines the key for sorting and the hash code. The key must be defined again 
+	 * when the ordinals of vertices are changed.
+	 */
+	void defineKey() {
+		this.key = Edge.key(begin.getOrdinal(), end.getOrdinal(), type);
+		this.hash = 31 * begin.hashCode() + end.hashCode();
+	}
+	
+	/**
+	 * Gets the key for sorting
+	 * @return key of edge
+	 */
+	long getKey() {
+		return key;
 	}
 	
 	/**
@@ -120,7 +187,7 @@ public class Edge implements Comparable<Edge> {
 	 * Get the rank of edge
 	 * @return rank of edge
 	 */
-	public Double getRank() {
+	public double getRank() {
 		return rank;
 	}
 
@@ -128,7 +195,7 @@ public class Edge implements Comparable<Edge> {
 	 * Get the points popularity
 	 * @return points popularity
 	 */
-	public Double getPointsPopularity() {
+	public double getPointsPopularity() {
 		return pointsPopularity;
 	}
 
@@ -140,35 +207,56 @@ public class Edge implements Comparable<Edge> {
 		return type;
 	}
 
+	/**
+	 * Get the amount of the same interactions, which the edge stands for
+	 * @return amount of interactions
+	 */
+	public int getAmount() {
+		return amount;
+	}
+	
+	/**
+	 * Adds one more interaction of the same type and direction to the loaded edge
+	 */
+	void addAmount() {
+		this.amount++;
+	}
+
 	/**
 	 * Get the coefficient of rank
 	 * @return coefficient of rank
 	 */
-	public Double getKoefRank() {
+	public double getKoefRank() {
 		return koefRank;
 	}
+	
+	/**
+	 * Sets the coefficient of rank of the merged edge restored from the snapshot
+	 * @param koefRank coefficient of rank
+	 */
+	void setKoefRank(double koefRank) {
+		this.koefRank = koefRank;
+	}
 
 	/**
 	 * Defines the edge parameters based on the type of edge.
 	 * Sets the initial value of the rank and rank step.
 	 */
 	private void defineRankOptions() {
-		if (this.type == Type.LIKE) {
-			this.rank = 1.00;
-			this.pointsPopularity = 1.0;
-		} else if (this.type == Type.COMMENT) {
-			this.rank = 2.00;
-			this.pointsPopularity = 2.0;
-		} else if (this.type == Type.FEEDBACK) {
-			this.rank = 1.00;
-			this.pointsPopularity = 0.0;
-		} else if (this.type == Type.GRATITUDE) {
-			this.rank = 0.5;
-			this.pointsPopularity = 0.0;
-		} else {
-			this.rank = 0.00;
-			this.pointsPopularity = 0.0;
-		}
+		this.rank = this.type.getRank();
+		this.pointsPopularity = this.type.getPointsPopularity();
+	}
+	
+	/**
+	 * Turns the edge back into a new edge of the given type. 
+	 * Allows to use one edge to merge many edges in turn.
+	 * @param type new type of edge
+	 */
+	void reset(Type type) {
+		this.type = type;
+		this.koefRank = 1.00;
+		defineRankOptions();
+		defineKey();
 	}
 	
 	/**
@@ -177,23 +265,42 @@ public class Edge implements Comparable<Edge> {
 	 * @param e the other edge
 	 */
 	public void mergeEdge(Edge e) {
-		if (e.type == Type.LIKE) {
+		mergeEdge(e.type, e.rank, e.pointsPopularity);
+	}
+	
+	/**
+	 * Merges a new edge of the given type to this edge 
+	 * without creating the edge itself.
+	 * @param type type of the merged edge
+	 */
+	void mergeEdge(Type type) {
+		mergeEdge(type, type.getRank(), type.getPointsPopularity());
+	}
+	
+	/**
+	 * Merges the edge with the given type, rank and popularity points to this edge.
+	 * @param type type of the merged edge
+	 * @param rank rank of the merged edge
+	 * @param pointsPopularity popularity points of the merged edge
+	 */
+	private void mergeEdge(Type type, double rank, double pointsPopularity) {
+		if (type == Type.LIKE) {
 			// reduce the coefficient
 			this.koefRank *= Edge.REDUCTION_RATIO;
 			// reduce the rank of current edge
-			e.rank *= this.koefRank;
+			rank *= this.koefRank;
 			// reduce the popularity or current edge
-			e.pointsPopularity *= this.koefRank;
-		} else if (e.type == Type.COMMENT) {
+			pointsPopularity *= this.koefRank;
+		} else if (type == Type.COMMENT) {
 			// reduce only the coefficient
 			this.koefRank *= Edge.REDUCTION_RATIO;
-		} else if (e.type == Type.FEEDBACK || e.type == Type.GRATITUDE) {
+		} else if (type == Type.FEEDBACK || type == Type.GRATITUDE) {
 			// reduce only the rank of edge
-			e.rank *= this.koefRank;
+			rank *= this.koefRank;
 		}
 		
-		this.rank += e.rank;
-		this.pointsPopularity += e.pointsPopularity;
+		this.rank += rank;
+		this.pointsPopularity += pointsPopularity;
 	}
 	
 	/**
@@ -203,6 +310,7 @@ public class Edge implements Comparable<Edge> {
 		Vertex temp = this.begin;
 		this.begin = end;
 		this.end = temp;
+		defineKey();
 	}
 	
 	public String toString() {
@@ -218,13 +326,13 @@ public class Edge implements Comparable<Edge> {
 		return obj.equals(this);
 	}
 	
+	public int hashCode() {
+		return hash;
+	}
+	
 	// Code to implement Comparable
 	@Override
 	public int compareTo(Edge o) {
-		Edge e = (Edge) o;
-		String str1 = this.getBegin().getId()+this.getEnd().getId()+this.getType();
-		String str2 = e.getBegin().getId()+e.getEnd().getId()+e.getType();
-
-		return str1.compareTo(str2);
+		return Long.compare(this.key, o.key);
 	}
 }
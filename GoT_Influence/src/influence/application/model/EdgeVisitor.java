@@ -0,0 +1,20 @@
+package influence.application.model;
+
+/**
+ * Visitor of the edges of graph. The graph passes the edges to the visitor 
+ * one by one, so the edges are looked through without building 
+ * the collections of them.
+ * @author Muidinov Aider
+ *
+ */
+public interface EdgeVisitor {
+	
+	/**
+	 * Visits the edge
+	 * @param from starting vertex
+	 * @param to finishing vertex
+	 * @param rank rank of the edge
+	 * @param points points of popularity of the edge
+	 */
+	public void visit(Vertex from, Vertex to, double rank, double points);
+}
@@ -3,20 +3,29 @@
  */
 package influence.application.model;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import influence.application.model.Edge;
 import influence.application.model.Vertex;
-import influence.application.view.helpers.GroupInfo;
 
 /**
  * The main class to represent the graph. 
@@ -28,16 +37,50 @@ import influence.application.view.helpers.GroupInfo;
  * @author Aider Muidinov.
  */
 public class FacebookGraph implements Graph {
-	private HashMap<String, Vertex> vertices;
+	/** order of vertices by id */
+	private static final Comparator<Vertex> ID_ORDER = new Comparator<Vertex>() {
+
+		@Override
+		public int compare(Vertex o1, Vertex o2) {
+			return o1.compareId(o2);
+		}
+		
+	};
+	
+	/** table of the names of vertices, the vertices and their edges are kept by the symbols of names */
+	private SymbolTable names;
+	
+	/** vertices by symbol */
+	private ArrayList<Vertex> vertices;
+	
+	/* The loaded edges of one direction are different interactions and they all 
+	 * are kept until the merger, therefore the sets of edges compare edges by identity. */
 	
-	/** outgoing edges for each vertex */
-	private HashMap<String, HashSet<Edge>> edges;
+	/** outgoing edges for each vertex by symbol, null if the vertex has no edges */
+	private ArrayList<Set<Edge>> edges;
 	
-	/** incoming edges for each vertex */
-	private HashMap<String, HashSet<Edge>> incomingEdges;
+	/** incoming edges for each vertex by symbol, null if the vertex has no edges */
+	private ArrayList<Set<Edge>> incomingEdges;
 	
-	/** groups in the graph. As a Map key is set id group leader */
-	private HashMap<Vertex,Group> groups;
+	/** loaded outgoing and incoming edges by symbol, they are kept after the merger 
+	 * in the incremental mode, so the edges of the touched vertices are merged again 
+	 * from the loaded edges; null if they are not kept */
+	private ArrayList<Set<Edge>> rawEdges;
+	private ArrayList<Set<Edge>> rawIncomingEdges;
+	
+	/** vertices are numbered in the order of ID, the new vertices get the numbers after them */
+	private boolean numbered;
+	
+	/** sorted vertices, it is built again after adding a vertex */
+	private List<Vertex> sortedVertices;
+	
+	/** sorted outgoing and incoming edges, they are built again after changing the edges of vertex. 
+	 * Ranks are defined in parallel, therefore the arrays are atomic */
+	private AtomicReferenceArray<List<Edge>> sortedEdges;
+	private AtomicReferenceArray<List<Edge>> sortedIncomingEdges;
+	
+	/** search of groups for the current reduction of influence */
+	private GroupSearch search;
 	
 	/** an indication that the graph has been initialized */
 	private boolean initialized;
@@ -45,28 +88,160 @@ public class FacebookGraph implements Graph {
 	/** groups search was held */
 	private boolean searched;
 	
+	/** incremental mode: the new edges update only the vertices touched by them */
+	private boolean incremental;
+	
+	/** the sets of edges contain the merged edges and the edges added after merger */
+	private boolean merged;
+	
+	/** aggregated mode: the loaded interactions of one type and direction 
+	 * are kept as one edge with their amount */
+	private boolean aggregated;
+	
+	/** loaded edges of the aggregated mode by the symbols of vertices and the type, 
+	 * they are kept until the merger or with the loaded edges */
+	private LoadedEdges loadedEdges;
+	
+	/** groups were found for the current coefficient and can be updated incrementally */
+	private boolean groupsValid;
+	
+	/** vertices added after the last initialization */
+	private List<Vertex> pendingVertices;
+	
+	/** edges added after the last initialization */
+	private List<Edge> pendingEdges;
+	
+	/** vertices touched by the new edges, their groups must be updated */
+	private HashSet<Vertex> dirtyVertices;
+	
+	/** users sorted by popularity, it is built after the ranks are defined */
+	private PopularityIndex popularityIndex;
+	
+	/** users with positive popularity in the order of the index */
+	private List<Vertex> popularUsers;
+	
 	/** total number of edges */
-	private Integer amountEdges;
+	private int amountEdges;
 	
 	/** It determines the degree of reducing the influence of the group 
 	 * on the indirect followers. For large values, the stronger group 
 	 * will absorb the weak and vice versa. */
 	private double reductionInfluence;
 	
+	/** the largest amount of steps of the search of groups, 0 without limit */
+	private int maxSteps;
+	
+	/** amount of flips between two groups after which the vertex keeps its group, 
+	 * 0 without detection of oscillation */
+	private int maxFlips;
+	
+	/** order of the queue of the search of groups */
+	private GroupSearch.Order searchOrder;
+	
 	/**
 	 * The default constructor initializes all fields initial values
 	 */
 	public FacebookGraph() {
-		this.vertices = new HashMap<String, Vertex>();
-		this.edges = new HashMap<String, HashSet<Edge>>();
-		this.incomingEdges = new HashMap<String, HashSet<Edge>>();
-		this.groups = new HashMap<Vertex,Group>();
+		this.names = new SymbolTable();
+		this.vertices = new ArrayList<Vertex>();
+		this.edges = new ArrayList<Set<Edge>>();
+		this.incomingEdges = new ArrayList<Set<Edge>>();
+		this.rawEdges = null;
+		this.rawIncomingEdges = null;
 		this.initialized = false;
 		this.searched = false;
+		this.numbered = true;
+		this.sortedVertices = null;
+		this.sortedEdges = new AtomicReferenceArray<List<Edge>>(0);
+		this.sortedIncomingEdges = new AtomicReferenceArray<List<Edge>>(0);
+		this.incremental = false;
+		this.merged = false;
+		this.aggregated = false;
+		this.loadedEdges = new LoadedEdges();
+		this.groupsValid = false;
+		this.pendingVertices = new LinkedList<Vertex>();
+		this.pendingEdges = new LinkedList<Edge>();
+		this.dirtyVertices = null;
 		this.amountEdges = 0;
 		this.reductionInfluence = 0.5;
+		this.maxSteps = 0;
+		this.maxFlips = GroupSearch.DEFAULT_MAX_FLIPS;
+		this.searchOrder = GroupSearch.Order.FIFO;
+		this.search = newSearch(reductionInfluence);
 	}
 
+	/**
+	 * Creates a new search of groups with the limit of steps of the graph
+	 * @param coefficient reduction of influence
+	 * @return search of groups
+	 */
+	GroupSearch newSearch(double coefficient) {
+		GroupSearch newSearch = new GroupSearch(this, coefficient);
+		newSearch.setMaxSteps(maxSteps);
+		newSearch.setMaxFlips(maxFlips);
+		newSearch.setOrder(searchOrder);
+		
+		return newSearch;
+	}
+	
+	/**
+	 * Gets the limit of steps of the search of groups
+	 * @return the largest amount of steps, 0 without limit
+	 */
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+	
+	/**
+	 * Sets the limit of steps of the search of groups. The search, which reaches it,
+	 * stops with the groups found so far and reports the status STEP_LIMIT.
+	 * @param maxSteps the largest amount of steps, 0 without limit
+	 */
+	public void setMaxSteps(int maxSteps) {
+		this.maxSteps = maxSteps;
+		search.setMaxSteps(maxSteps);
+		resetSearched();
+	}
+	
+	/**
+	 * Gets the amount of flips after which the vertex keeps its group
+	 * @return amount of flips, 0 without detection of oscillation
+	 */
+	public int getMaxFlips() {
+		return maxFlips;
+	}
+	
+	/**
+	 * Sets the amount of flips between the same two groups after which the vertex 
+	 * keeps its group and is reported as oscillating. The groups can differ 
+	 * from the groups of the search without detection, therefore they are searched again.
+	 * @param maxFlips amount of flips, 0 without detection of oscillation
+	 */
+	public void setMaxFlips(int maxFlips) {
+		this.maxFlips = maxFlips;
+		search.setMaxFlips(maxFlips);
+		resetSearched();
+	}
+	
+	/**
+	 * Gets the order of the queue of the search of groups
+	 * @return order
+	 */
+	public GroupSearch.Order getSearchOrder() {
+		return searchOrder;
+	}
+	
+	/**
+	 * Sets the order of the queue of the search of groups. 
+	 * The groups depend on the order, therefore they are searched again.
+	 * @param searchOrder order
+	 */
+	public void setSearchOrder(GroupSearch.Order searchOrder) {
+		this.searchOrder = searchOrder;
+		search.setOrder(searchOrder);
+		resetSearched();
+	}
+	
 	/**
 	 * Gets the value for reductionInfluence
 	 * @return reductionInfluence
@@ -84,19 +259,68 @@ public class FacebookGraph implements Graph {
 		resetSearched();
 	}
 
+	/**
+	 * Gets the value for incremental
+	 * @return incremental
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Sets the incremental mode. In this mode the loaded edges are kept after the merger, 
+	 * and the initialization after adding new edges merges again from them the edges 
+	 * of the vertices touched by the new edges and defines only their ranks. 
+	 * The search of groups starts from the previous groups and only from the touched vertices.
+	 * The mode must be set before the first initialization.
+	 * @param incremental
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Gets the value for aggregated
+	 * @return aggregated
+	 */
+	public boolean isAggregated() {
+		return aggregated;
+	}
+
+	/**
+	 * Sets the aggregated mode. In this mode the edges added by the names of vertices 
+	 * (as the loaders add them) are not kept one by one: the repeated interaction 
+	 * of the same type and direction only increases the amount of the loaded edge. 
+	 * The memory is bounded by the distinct pairs of users instead of the rows, 
+	 * and the merged edges and ranks are the same.
+	 * @param aggregated
+	 */
+	public void setAggregated(boolean aggregated) {
+		this.aggregated = aggregated;
+		loadedEdges.clear();
+	}
+
 	/**
 	 * Gets the value for groups
 	 * @return groups
 	 */
 	public HashMap<Vertex,Group> getGroups() {
-		return groups;
+		return search.getGroups();
+	}
+	
+	/**
+	 * Gets the search of groups for the current reduction of influence
+	 * @return search of groups
+	 */
+	public GroupSearch getSearch() {
+		return search;
 	}
 
 	/**
 	 * Gets amount edges
 	 * @return amountEdges
 	 */
-	public Integer getAmountEdges() {
+	public int getAmountEdges() {
 		return amountEdges;
 	}
 
@@ -129,62 +353,109 @@ public class FacebookGraph implements Graph {
 	 */
 	public void resetSearched() {
 		this.searched = false;
+		this.groupsValid = false;
+	}
+	
+	/**
+	 * Marks the graph as changed. In the incremental mode 
+	 * the found groups are kept to update them later.
+	 */
+	private void modified() {
+		if (incremental && merged) {
+			this.initialized = false;
+			this.searched = false;
+		} else if (initialized) {
+			resetInitialized();
+		}
 	}
 
 	/** Converting hashset of vertices in the linked list */
 	public List<Vertex> getVertices(Collection<Vertex> v) {
-		PriorityQueue<Vertex> p_vertices = new PriorityQueue<Vertex>(new Comparator<Vertex>() {
-
-			@Override
-			public int compare(Vertex o1, Vertex o2) {
-				return o1.getId().compareTo(o2.getId());
-			}
-			
-		});
-		p_vertices.addAll(v);
-		List<Vertex> l_vertices = new LinkedList<Vertex>();
+		Vertex[] a_vertices = v.toArray(new Vertex[0]);
+		Arrays.sort(a_vertices, ID_ORDER);
 		
-		while (!p_vertices.isEmpty()) l_vertices.add(p_vertices.remove());
-		
-		return l_vertices;
+		return new LinkedList<Vertex>(Arrays.asList(a_vertices));
 	}
 	
-	/** Converting hashset of vertices in the linked list */
+	/**
+	 * Gets all vertices sorted by id. 
+	 * The list is built once and is kept until a new vertex is added.
+	 * @return unmodifiable list of vertices
+	 */
 	public List<Vertex> getVertices() {
-		return getVertices(vertices.values());
+		List<Vertex> l_vertices = sortedVertices;
+		if (l_vertices == null) {
+			Vertex[] a_vertices = vertices.toArray(new Vertex[0]);
+			Arrays.sort(a_vertices, ID_ORDER);
+			l_vertices = Collections.unmodifiableList(Arrays.asList(a_vertices));
+			sortedVertices = l_vertices;
+		}
+		
+		return l_vertices;
 	}
 	
 	/**
-	 * Converting hashset of edges in the linked list
+	 * Gets the sorted outgoing edges of vertex. 
+	 * The list is built once and is kept until the edges of vertex are changed.
 	 * @param vertexID vertex ID
-	 * @return linked list of edges
+	 * @return unmodifiable list of edges
 	 */
 	public List<Edge> getEdges(String vertexID) {
-		if (!edges.containsKey(vertexID)) return new LinkedList<Edge>();
-		
-		PriorityQueue<Edge> p_edges = new PriorityQueue<Edge>(edges.get(vertexID));
-		List<Edge> l_edges = new LinkedList<Edge>();
-		
-		while (!p_edges.isEmpty()) l_edges.add(p_edges.remove());
-		
-		return l_edges;
+		return getSortedEdges(names.find(vertexID), edges, sortedEdges);
 	}
 	
 	/**
-	 * Converting hashset of incoming edges in the linked list
+	 * Gets the sorted incoming edges of vertex. 
+	 * The list is built once and is kept until the edges of vertex are changed.
 	 * @param vertexID vertex ID
-	 * @return linked list of incoming edges
+	 * @return unmodifiable list of incoming edges
 	 */
 	public List<Edge> getIncomingEdges(String vertexID) {
-		if (!incomingEdges.containsKey(vertexID)) return new LinkedList<Edge>();
+		return getSortedEdges(names.find(vertexID), incomingEdges, sortedIncomingEdges);
+	}
+	
+	/**
+	 * Gets the sorted edges from the cache or sorts them and puts into the cache
+	 * @param symbol symbol of vertex ID, -1 for the missing vertex
+	 * @param edges sets of edges
+	 * @param sorted cache of sorted edges
+	 * @return unmodifiable list of edges
+	 */
+	private List<Edge> getSortedEdges(int symbol, ArrayList<Set<Edge>> edges, 
+			AtomicReferenceArray<List<Edge>> sorted) {
+		if (symbol < 0) return Collections.emptyList();
 		
-		PriorityQueue<Edge> p_edges = new PriorityQueue<Edge>(incomingEdges.get(vertexID));
-		List<Edge> l_edges = new LinkedList<Edge>();
+		List<Edge> l_edges = sorted.get(symbol);
+		if (l_edges != null) return l_edges;
 		
-		while (!p_edges.isEmpty()) l_edges.add(p_edges.remove());
+		Set<Edge> currEdges = edges.get(symbol);
+		if (currEdges == null) return Collections.emptyList();
+		
+		Edge[] a_edges = currEdges.toArray(new Edge[0]);
+		Arrays.sort(a_edges);
+		l_edges = Collections.unmodifiableList(Arrays.asList(a_edges));
+		sorted.set(symbol, l_edges);
 		
 		return l_edges;
 	}
+	
+	/**
+	 * Finds the symbol of vertex in the table of names of the graph
+	 * @param v vertex
+	 * @return symbol or -1 if the graph has no such vertex
+	 */
+	int symbolOf(Vertex v) {
+		if (v.getNames() == names) return v.getSymbol();
+		return names.find(v.getId());
+	}
+	
+	/**
+	 * Removes all sorted edges from the caches
+	 */
+	private void clearSortedEdges() {
+		sortedEdges = new AtomicReferenceArray<List<Edge>>(vertices.size());
+		sortedIncomingEdges = new AtomicReferenceArray<List<Edge>>(vertices.size());
+	}
 
 	/*
 	 * (non-Javadoc)
@@ -193,160 +464,314 @@ public class FacebookGraph implements Graph {
 	public void initialize() {
 		SimpleTimer timer = new SimpleTimer();
 		
-		if (!initialized) {
-			timer.start("   creation of new edges...");
-			createEdges();
-			timer.finish("...done");
+		initializeEdges(timer);
 
-			timer.start("   merging of edges...");
-			mergeEdges();
-			timer.finish("...done");
-
-			timer.start("   define ranks...");
-			defineRanks();
-			timer.finish("...done");
+		if (!searched) {
+			if (incremental && groupsValid && dirtyVertices != null) {
+				timer.start("   update groups of "+dirtyVertices.size()+" vertices...");
+				search.updateGroups(dirtyVertices);
+				timer.finish("...done");
+			} else {
+				timer.start("   clear old groups...");
+				clearGroups();
+				timer.finish("...done");
+				timer.start("   search groups...");
+				search.searchGroups();
+				timer.finish("...done");
+			}
 			
-			initialized = true;
+			dirtyVertices = null;
+			searched = true;
+			groupsValid = true;
 		}
+	}
+	
+	/**
+	 * Creates and merges edges and defines ranks, if the graph is not initialized
+	 * @param timer timer of steps
+	 */
+	private void initializeEdges(SimpleTimer timer) {
+		if (!initialized) {
+			numberVertices();
+			
+			if (incremental && rawEdges != null) {
+				timer.start("   update of new edges and ranks...");
+				dirtyVertices = updateEdges();
+				definePopularityIndex();
+				timer.finish("...done");
+			} else {
+				timer.start("   creation and merging of edges...");
+				mergeEdges();
+				timer.finish("...done");
 
-		if (!searched) {
-			timer.start("   clear old groups...");
-			clearGroups();
-			timer.finish("...done");
-			timer.start("   search groups...");
-			searchGroups();
-			timer.finish("...done");
+				timer.start("   define ranks...");
+				defineRanks();
+				timer.finish("...done");
+			}
 			
-			searched = true;
+			pendingVertices.clear();
+			pendingEdges.clear();
+			initialized = true;
 		}
 	}
 	
 	/**
-	 * Calculation of full rank for all vertices
+	 * Searches groups for each value of the reduction of influence. 
+	 * Edges and ranks are calculated only once, and the searches are held 
+	 * in parallel, each with its own links and groups. 
+	 * The groups of the graph are not changed.
+	 * @param coefficients values of the reduction of influence
+	 * @return results of the searches in the order of values
 	 */
-	private void defineRanks() {
-		// defines the basic ranks of users
-		for (Vertex user : getVertices()) {
-			user.defineBaseRank(getIncomingEdges(user.getId()));
+	public List<SweepPoint> sweepInfluence(double[] coefficients) {
+		initializeEdges(new SimpleTimer());
+		// sorted vertices are created before the searches, which only read them
+		getVertices();
+		
+		List<ForkJoinTask<SweepPoint>> tasks = new ArrayList<ForkJoinTask<SweepPoint>>();
+		for (final double coefficient : coefficients) {
+			tasks.add(ForkJoinPool.commonPool().submit(new Callable<SweepPoint>() {
+
+				@Override
+				public SweepPoint call() {
+					SimpleTimer timer = new SimpleTimer();
+					GroupSearch sweepSearch = newSearch(coefficient);
+					
+					timer.start(null);
+					sweepSearch.searchGroups();
+					timer.finish(null);
+					
+					return new SweepPoint(sweepSearch, timer.secResult());
+				}
+				
+			}));
 		}
 		
-		// defines the full rank of users
-		for (Vertex user : getVertices()) {
-			user.defineRank(getIncomingEdges(user.getId()));
+		List<SweepPoint> points = new ArrayList<SweepPoint>();
+		for (ForkJoinTask<SweepPoint> task : tasks) {
+			points.add(task.join());
 		}
+		
+		return points;
 	}
 	
 	/**
-	 * Search groups and delete empty groups
+	 * Marks the graph restored from the snapshot as initialized. 
+	 * The snapshot keeps the ordinals of vertices, the merged edges and the ranks.
+	 * @param restoredSearch groups of the snapshot or null, if they must be searched
 	 */
-	private void searchGroups() {
-		// We prepare a set of all vertices for search for groups
-		HashSet<Vertex> hashModified = new HashSet<Vertex>(this.vertices.values());
+	void restored(GroupSearch restoredSearch) {
+		numbered = true;
+		sortedVertices = null;
+		pendingVertices.clear();
+		pendingEdges.clear();
+		loadedEdges.clear();
+		rawEdges = null;
+		rawIncomingEdges = null;
+		dirtyVertices = null;
+		definePopularityIndex();
+		merged = true;
+		initialized = true;
 		
-		// basic search groups
-		defineGroups(hashModified);
+		if (restoredSearch != null) {
+			search = restoredSearch;
+			searched = true;
+			groupsValid = true;
+		} else {
+			resetSearched();
+		}
+	}
+	
+	/**
+	 * Numbers the vertices in the order of ID, if new vertices were added. 
+	 * Then the keys of edges are defined again, 
+	 * therefore the edges are sorted by the ID of vertices.
+	 */
+	private void numberVertices() {
+		if (numbered) return;
+		
+		int ordinal = 0;
+		for (Vertex v : getVertices()) {
+			v.setOrdinal(ordinal++);
+		}
 		
-		/* re-search for merge groups in which only one members.
-		 * This must be done, because there are situations where 
-		 * all members of the group moved on to other groups */
-		defineGroups(resetSingleGroup());
+		defineKeys(edges);
+		if (rawEdges != null) defineKeys(rawEdges);
+		clearSortedEdges();
 		
-		// delete empty groups, because they do not carry useful information
-		removeEmptyGroups();
+		numbered = true;
 	}
 	
 	/**
-	 * Determine the set of vertices with one member
-	 * @return groups in which only one members
+	 * Defines again the keys of edges
+	 * @param edges sets of edges
 	 */
-	private HashSet<Vertex> resetSingleGroup() {
-		HashSet<Vertex> hashModified = new HashSet<Vertex>();
-		
-		for (Group g : this.groups.values()) {
-			if (g.size() == 1) {
-				for (Link l : g.getLinks()) {
-					if (!hashModified.contains(l.getFollower())) {
-						l.resetRank();
-						hashModified.add(l.getFollower());
-						if (g.getLeader().getLink().getGroup().getLeader().equals(l.getFollower()) 
-								&& g.getLeader().getLink().getGroup().size() == 1)
-							hashModified.add(g.getLeader());
-					}
-				}
+	private static void defineKeys(ArrayList<Set<Edge>> edges) {
+		for (Set<Edge> currEdges : edges) {
+			if (currEdges == null) continue;
+			for (Edge e : currEdges) {
+				e.defineKey();
 			}
 		}
-		
-		return hashModified;
 	}
 	
 	/**
-	 * Defines a group of users.
-	 * Search is only for a given set of vertices.
-	 * @param hashModified
+	 * Merges edges and defines ranks only for the vertices touched by the 
+	 * edges added after the last initialization. The outgoing edges of the touched 
+	 * vertices are merged again from all their loaded edges in the same way as 
+	 * by the full merger. Other merged edges and ranks would not change, 
+	 * therefore the result is the same as of the full initialization.
+	 * @return vertices touched by the new edges and the followers of vertices with the changed ranks
 	 */
-	private void defineGroups(HashSet<Vertex> hashModified) {
-		// create queue of vertices
-		LinkedList<Vertex> modified = (LinkedList<Vertex>) getVertices(hashModified);
-		// we look through the vertex in our queue on a first in - first out
-		while (!modified.isEmpty()) {
-			Vertex user = modified.removeFirst();
-			hashModified.remove(user);
-			
-			/* In this condition, we first find the connection with the group 
-			 * or create one, if the group has not yet been created. 
-			 * Then define the strongest group of adherents in our personal network. */
-			if (user.findLink(this).changeGroup(this)) {
-				
-				/* if the current group has been changed, it will add to the queue 
-				 * all users to incoming edges, because perhaps it could change their group */
-				for (Edge e : getFollowers(user)) {
-					if (!hashModified.contains(e.getBegin())) {
-						modified.addLast(e.getBegin());
-						hashModified.add(e.getBegin());
-					}
-				}
-				
+	private HashSet<Vertex> updateEdges() {
+		HashSet<Vertex> touched = new HashSet<Vertex>(pendingVertices);
+		
+		// the auxiliary edge of Like or Comment goes in the reverse direction
+		HashSet<Vertex> begins = new HashSet<Vertex>();
+		HashSet<Vertex> ends = new HashSet<Vertex>();
+		for (Edge e : pendingEdges) {
+			begins.add(e.getBegin());
+			ends.add(e.getEnd());
+			if (e.getType() == Type.COMMENT || e.getType() == Type.LIKE) {
+				begins.add(e.getEnd());
+				ends.add(e.getBegin());
+			}
+		}
+		touched.addAll(begins);
+		touched.addAll(ends);
+		
+		/* merging again all outgoing edges of vertices with the new edges. 
+		 * The new edges are read as the incoming edges of other vertices, 
+		 * therefore they are replaced only after all vertices are merged */
+		List<Vertex> mergedVertices = getVertices(begins);
+		List<List<Edge>> mergedEdges = new ArrayList<List<Edge>>();
+		for (Vertex v : mergedVertices) {
+			List<Edge> vertexEdges = new ArrayList<Edge>();
+			mergeEdges(v, rawEdges, rawIncomingEdges, vertexEdges);
+			mergedEdges.add(vertexEdges);
+		}
+		for (int i = 0; i < mergedVertices.size(); i++) {
+			for (Edge e : getEgonet(mergedVertices.get(i))) {
+				removeEdge(e);
 			}
+			insertEdges(mergedEdges.get(i));
+		}
+		
+		/* the basic ranks are changed only for the vertices with new incoming edges, 
+		 * and the full ranks also for the vertices to which they are incoming */
+		HashSet<Vertex> ranked = new HashSet<Vertex>(ends);
+		for (Vertex user : getVertices(ends)) {
+			user.defineBaseRank(getFollowers(user));
+			for (Edge e : getEgonet(user)) {
+				ranked.add(e.getEnd());
+			}
+		}
+		
+		for (Vertex user : getVertices(ranked)) {
+			user.defineRank(getFollowers(user));
 			
+			// the followers can choose another group, if the rank of the vertex was changed
+			touched.add(user);
+			for (Edge e : getFollowers(user)) {
+				touched.add(e.getBegin());
+			}
 		}
+		
+		return touched;
 	}
 	
 	/**
-	 * Remove empty groups, because they no longer need us.
+	 * Calculation of full rank for all vertices
 	 */
-	private void removeEmptyGroups() {
-		Set<Vertex> removeGroups = new HashSet<Vertex>();
+	private void defineRanks() {
+		Vertex[] users = getVertices().toArray(new Vertex[0]);
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		List<Edge>[] incoming = new List[users.length];
+		ForkJoinPool pool = ForkJoinPool.commonPool();
 		
-		for (Map.Entry<Vertex, Group> entry : this.groups.entrySet()) {
-			int size = entry.getValue().getLinks().size();
-			if (size == 0) {
-				removeGroups.add(entry.getKey());
-			}
+		/* each vertex is calculated independently, the sum of its edges 
+		 * is taken in the same order as in the sequential calculation, 
+		 * therefore the ranks are the same up to the last bit */
+		pool.invoke(new RankTask(this, users, incoming, RankTask.INCOMING, 0, users.length));
+		
+		// defines the basic ranks of users
+		pool.invoke(new RankTask(this, users, incoming, RankTask.BASE_RANK, 0, users.length));
+		
+		// defines the full rank of users, it needs all basic ranks
+		pool.invoke(new RankTask(this, users, incoming, RankTask.FULL_RANK, 0, users.length));
+		
+		definePopularityIndex();
+	}
+	
+	/**
+	 * Sorts the users by popularity for the search of opinion leaders
+	 */
+	private void definePopularityIndex() {
+		double[] popularity = new double[vertices.size()];
+		int[] ordinals = new int[vertices.size()];
+		for (int symbol = 0; symbol < popularity.length; symbol++) {
+			popularity[symbol] = vertices.get(symbol).getPopularity();
+			ordinals[symbol] = vertices.get(symbol).getOrdinal();
 		}
+		popularityIndex = new PopularityIndex(popularity, ordinals);
 		
-		for (Vertex g : removeGroups) {
-			this.groups.remove(g);
+		List<Vertex> users = new ArrayList<Vertex>(popularityIndex.size());
+		for (int i = 0; i < popularityIndex.size(); i++) {
+			users.add(vertices.get(popularityIndex.get(i)));
 		}
+		popularUsers = users;
 	}
 	
 	/**
-	 * Creating edges that are not loaded and are auxiliary for organizing influence spread
+	 * Task of the rank calculation for a range of vertices.
+	 * Range is split in half until it becomes small enough.
 	 */
-	public void createEdges() {
-		List<Edge> newEdges = new LinkedList<Edge>();
+	private static class RankTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		/** steps of calculation */
+		private static final int INCOMING = 0;
+		private static final int BASE_RANK = 1;
+		private static final int FULL_RANK = 2;
+		
+		/** the size of range calculated without splitting */
+		private static final int THRESHOLD = 256;
 		
-		for (Map.Entry<String, HashSet<Edge>> v : edges.entrySet()) {
-			for (Edge e : v.getValue()) {
-				if (e.getType() == Type.COMMENT) {
-					newEdges.add(new Edge(e.getEnd(), e.getBegin(),"FEEDBACK"));
-				} else if (e.getType() == Type.LIKE) {
-					newEdges.add(new Edge(e.getEnd(), e.getBegin(),"GRATITUDE"));
+		private final FacebookGraph graph;
+		private final Vertex[] users;
+		private final List<Edge>[] incoming;
+		private final int step;
+		private final int from;
+		private final int to;
+		
+		private RankTask(FacebookGraph graph, Vertex[] users, List<Edge>[] incoming, int step, int from, int to) {
+			this.graph = graph;
+			this.users = users;
+			this.incoming = incoming;
+			this.step = step;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RankTask(graph, users, incoming, step, from, middle),
+						new RankTask(graph, users, incoming, step, middle, to));
+				return;
+			}
+			
+			for (int i = from; i < to; i++) {
+				if (step == INCOMING) {
+					incoming[i] = graph.getFollowers(users[i]);
+				} else if (step == BASE_RANK) {
+					users[i].defineBaseRank(incoming[i]);
+				} else {
+					users[i].defineRank(incoming[i]);
 				}
 			}
 		}
-		
-		// adding new edges
-		this.addEdges(newEdges);
 	}
 	
 	/**
@@ -354,30 +779,173 @@ public class FacebookGraph implements Graph {
 	 * Calculated edge rank based on their quantity. 
 	 * Thus, more edges was merged in one direction, 
 	 * the higher the rank of edge.
+	 * The auxiliary edges for organizing influence spread (the Feedback for the Comment 
+	 * and the Gratitude for the Like in the reverse direction) are merged in the same pass 
+	 * without creating them, so the graph holds only the loaded and the merged edges.
+	 * If the loaded edges are kept, the edges are merged from them, 
+	 * and they are kept further only in the incremental mode.
 	 */
 	public void mergeEdges() {
-		List<Edge> newEdges = new LinkedList<Edge>();
-		//create merge edges
+		ArrayList<Set<Edge>> newEdges = new ArrayList<Set<Edge>>(vertices.size());
+		ArrayList<Set<Edge>> newIncomingEdges = new ArrayList<Set<Edge>>(vertices.size());
+		for (int i = 0; i < vertices.size(); i++) {
+			newEdges.add(null);
+			newIncomingEdges.add(null);
+		}
+		
+		// the loaded edges are only read until all vertices are merged
+		ArrayList<Set<Edge>> loaded = rawEdges != null ? rawEdges : edges;
+		ArrayList<Set<Edge>> loadedIncoming = rawEdges != null ? rawIncomingEdges : incomingEdges;
+		int amount = 0;
+		List<Edge> vertexEdges = new ArrayList<Edge>();
 		for (Vertex v : getVertices()) {
-			Map<Vertex,Edge> searched = new HashMap<Vertex,Edge>();
-			for (Edge e : getEdges(v.getId())) {
-				Vertex end = e.getEnd();
-				if (searched.containsKey(end)) {
-					Edge merge = searched.get(end);
-					merge.mergeEdge(e);
+			vertexEdges.clear();
+			mergeEdges(v, loaded, loadedIncoming, vertexEdges);
+			for (Edge e : vertexEdges) {
+				addToSet(newEdges, symbolOf(e.getBegin()), e);
+				addToSet(newIncomingEdges, symbolOf(e.getEnd()), e);
+			}
+			amount += vertexEdges.size();
+		}
+		
+		//replace old edges, the loaded edges are kept for the incremental update
+		if (incremental) {
+			this.rawEdges = loaded;
+			this.rawIncomingEdges = loadedIncoming;
+		} else {
+			this.rawEdges = null;
+			this.rawIncomingEdges = null;
+			loadedEdges.clear();
+		}
+		this.edges = newEdges;
+		this.incomingEdges = newIncomingEdges;
+		clearSortedEdges();
+		amountEdges = amount;
+		merged = true;
+	}
+	
+	/**
+	 * Merges the outgoing edges of the vertex together with the auxiliary edges 
+	 * of its incoming Likes and Comments. Both streams are read in the order of keys, 
+	 * so the edges of one direction are merged in the order of names of their types, 
+	 * as the sorted edges would be merged. The loaded edge of the aggregated mode 
+	 * is merged as many times as the amount of its interactions.
+	 * @param v vertex
+	 * @param loaded outgoing loaded edges
+	 * @param loadedIncoming incoming loaded edges
+	 * @param newEdges list to which the merged edges are added
+	 */
+	private void mergeEdges(Vertex v, ArrayList<Set<Edge>> loaded, 
+			ArrayList<Set<Edge>> loadedIncoming, List<Edge> newEdges) {
+		Edge[] outgoing = sortedEdges(loaded, symbolOf(v));
+		Edge[] incoming = sortedEdges(loadedIncoming, symbolOf(v));
+		
+		Edge merge = null;
+		int i = 0;
+		int j = nextAuxiliary(incoming, 0);
+		while (i < outgoing.length || j < incoming.length) {
+			Edge e = null;
+			Type type;
+			Vertex end;
+			long key;
+			int amount;
+			
+			if (j == incoming.length || (i < outgoing.length 
+					&& outgoing[i].getKey() <= auxiliaryKey(incoming[j]))) {
+				e = outgoing[i++];
+				type = e.getType();
+				end = e.getEnd();
+				key = e.getKey();
+				amount = e.getAmount();
+			} else {
+				type = auxiliaryType(incoming[j].getType());
+				end = incoming[j].getBegin();
+				key = auxiliaryKey(incoming[j]);
+				amount = incoming[j].getAmount();
+				j = nextAuxiliary(incoming, j + 1);
+			}
+			
+			for (int k = 0; k < amount; k++) {
+				if (merge != null && (merge.getKey() >>> 3) == (key >>> 3)) {
+					if (e != null) {
+						merge.mergeEdge(e);
+					} else {
+						merge.mergeEdge(type);
+					}
 				} else {
-					Edge merge = new Edge(e,"GENERAL");
-					searched.put(end, merge);
+					// the first edge of the direction becomes the merged edge
+					if (e != null) {
+						merge = new Edge(e,"GENERAL");
+					} else {
+						merge = new Edge(v, end, Type.GENERAL, type.getRank(), type.getPointsPopularity());
+					}
 					newEdges.add(merge);
 				}
 			}
 		}
-		//delete old edges
-		this.edges.clear();
-		this.incomingEdges.clear();
-		amountEdges = 0;
-		//adding new edges
-		this.addEdges(newEdges);
+	}
+	
+	/**
+	 * Finds the next incoming edge which gives the auxiliary edge
+	 * @param incoming sorted incoming edges
+	 * @param from position to start from
+	 * @return position of the edge or the length of the array
+	 */
+	private static int nextAuxiliary(Edge[] incoming, int from) {
+		int j = from;
+		while (j < incoming.length && auxiliaryType(incoming[j].getType()) == null) {
+			j++;
+		}
+		return j;
+	}
+	
+	/**
+	 * Gets the type of the auxiliary edge for the loaded edge
+	 * @param type type of loaded edge
+	 * @return Feedback for Comment, Gratitude for Like, otherwise null
+	 */
+	private static Type auxiliaryType(Type type) {
+		if (type == Type.COMMENT) return Type.FEEDBACK;
+		if (type == Type.LIKE) return Type.GRATITUDE;
+		return null;
+	}
+	
+	/**
+	 * Gets the key of the auxiliary edge in the reverse direction of the edge
+	 * @param e loaded edge
+	 * @return key of the auxiliary edge
+	 */
+	private static long auxiliaryKey(Edge e) {
+		return Edge.key(e.getEnd().getOrdinal(), e.getBegin().getOrdinal(), auxiliaryType(e.getType()));
+	}
+	
+	/**
+	 * Sorts the edges of vertex without putting them into the cache
+	 * @param edges sets of edges
+	 * @param symbol symbol of vertex ID
+	 * @return sorted edges
+	 */
+	private static Edge[] sortedEdges(ArrayList<Set<Edge>> edges, int symbol) {
+		if (symbol < 0 || edges.get(symbol) == null) return new Edge[0];
+		
+		Edge[] a_edges = edges.get(symbol).toArray(new Edge[0]);
+		Arrays.sort(a_edges);
+		return a_edges;
+	}
+	
+	/**
+	 * Adds the edge to the set of vertex, the set is created if it is needed
+	 * @param edges sets of edges
+	 * @param symbol symbol of vertex ID
+	 * @param edge added edge
+	 */
+	private static void addToSet(ArrayList<Set<Edge>> edges, int symbol, Edge edge) {
+		Set<Edge> currEdges = edges.get(symbol);
+		if (currEdges == null) {
+			currEdges = newEdgeSet();
+			edges.set(symbol, currEdges);
+		}
+		currEdges.add(edge);
 	}
 	
 	/* (non-Javadoc)
@@ -385,12 +953,63 @@ public class FacebookGraph implements Graph {
 	 */
 	@Override
 	public void addVertex(String num) {
-		if (!vertices.containsKey(num)) {
-			Vertex vertex = new Vertex(num);
-			vertices.put(num, vertex);
+		addVertex(names.intern(num));
+	}
+	
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#addVertex(java.nio.ByteBuffer, int, int, java.nio.charset.Charset)
+	 */
+	@Override
+	public int addVertex(ByteBuffer buffer, int start, int end, Charset charset) {
+		int symbol = names.intern(buffer, start, end, charset);
+		addVertex(symbol);
+		return symbol;
+	}
+	
+	/**
+	 * Creates the vertex for the name, if it is new
+	 * @param symbol symbol of name
+	 */
+	private void addVertex(int symbol) {
+		if (symbol == vertices.size()) {
+			// the symbols and the ordinals of vertices are packed into the keys of edges
+			if (symbol == Edge.MAX_VERTICES) {
+				throw new IllegalStateException("too many vertices in the graph, at most "+Edge.MAX_VERTICES);
+			}
+			Vertex vertex = new Vertex(names, symbol);
+			// until the numbering the new vertex gets the number after all vertices
+			vertex.setOrdinal(symbol);
+			vertices.add(vertex);
+			edges.add(null);
+			incomingEdges.add(null);
+			if (rawEdges != null) {
+				rawEdges.add(null);
+				rawIncomingEdges.add(null);
+			}
+			if (symbol >= sortedEdges.length()) {
+				sortedEdges = grow(sortedEdges);
+				sortedIncomingEdges = grow(sortedIncomingEdges);
+			}
+			sortedVertices = null;
+			numbered = false;
+			if (merged) pendingVertices.add(vertex);
 		}
 		
-		if (initialized) resetInitialized();
+		modified();
+	}
+	
+	/**
+	 * Doubles the cache of sorted edges keeping the lists
+	 * @param sorted cache of sorted edges
+	 * @return new cache
+	 */
+	private static AtomicReferenceArray<List<Edge>> grow(AtomicReferenceArray<List<Edge>> sorted) {
+		AtomicReferenceArray<List<Edge>> grown = 
+				new AtomicReferenceArray<List<Edge>>(Math.max(sorted.length() * 2, 16));
+		for (int i = 0; i < sorted.length(); i++) {
+			grown.set(i, sorted.get(i));
+		}
+		return grown;
 	}
 
 	/**
@@ -400,35 +1019,59 @@ public class FacebookGraph implements Graph {
 	 * @param edge added edge
 	 */
 	public void addEdge(Edge edge) {
-		String from = edge.getBegin().getId();
-		String to = edge.getEnd().getId();
+		if (rawEdges != null) {
+			// the new edge is kept with the loaded edges, it is merged at the initialization
+			int from = symbolOf(edge.getBegin());
+			int to = symbolOf(edge.getEnd());
+			if (from < 0 || to < 0) return;
+			
+			addToSet(rawEdges, from, edge);
+			addToSet(rawIncomingEdges, to, edge);
+		} else if (!insertEdge(edge)) {
+			return;
+		}
 		
-		if (!this.vertices.containsKey(from)) return;
-		if (!this.vertices.containsKey(to)) return;
+		if (merged) pendingEdges.add(edge);
 		
-		HashSet<Edge> currEdges;
+		modified();
+	}
+	
+	/**
+	 * Adds an edge in sets of edges without changing the indication of initialization. 
+	 * Edge will not be added if it is missing the vertex a set of vertices. 
+	 * @param edge added edge
+	 * @return true if the edge was added
+	 */
+	private boolean insertEdge(Edge edge) {
+		int from = symbolOf(edge.getBegin());
+		int to = symbolOf(edge.getEnd());
+		
+		if (from < 0) return false;
+		if (to < 0) return false;
+		
+		Set<Edge> currEdges;
 		
 		//outgoing edges
-		if (!this.edges.containsKey(from)) {
-			currEdges = new HashSet<Edge>();
-			this.edges.put(from, currEdges);
-		} else {
-			currEdges = this.edges.get(from);
+		currEdges = this.edges.get(from);
+		if (currEdges == null) {
+			currEdges = newEdgeSet();
+			this.edges.set(from, currEdges);
 		}
 		currEdges.add(edge);
 		
 		//incoming edges
-		if (!this.incomingEdges.containsKey(to)) {
-			currEdges = new HashSet<Edge>();
-			this.incomingEdges.put(to, currEdges);
-		} else {
-			currEdges = this.incomingEdges.get(to);
+		currEdges = this.incomingEdges.get(to);
+		if (currEdges == null) {
+			currEdges = newEdgeSet();
+			this.incomingEdges.set(to, currEdges);
 		}
 		currEdges.add(edge);
 		
+		sortedEdges.set(from, null);
+		sortedIncomingEdges.set(to, null);
 		amountEdges++;
 		
-		if (initialized) resetInitialized();
+		return true;
 	}
 	
 	/* (non-Javadoc)
@@ -436,12 +1079,57 @@ public class FacebookGraph implements Graph {
 	 */
 	@Override
 	public void addEdge(String from, String to, String type) {
+		addEdge(from, to, Edge.getFromString(type));
+	}
+	
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#addEdge(String, String, Type)
+	 */
+	@Override
+	public void addEdge(String from, String to, Type type) {
 		if (from.isEmpty() || to.isEmpty()) return;
-		if (!this.vertices.containsKey(from)) return;
-		if (!this.vertices.containsKey(to)) return;
+		Vertex begin = getVertex(from);
+		Vertex end = getVertex(to);
+		if (begin == null) return;
+		if (end == null) return;
+		
+		addEdge(begin, end, type);
+	}
+	
+	/* (non-Javadoc)
+	 * @see influence.application.model.Graph#addEdge(int, int, Type)
+	 */
+	@Override
+	public void addEdge(int from, int to, Type type) {
+		if (names.isEmpty(from) || names.isEmpty(to)) return;
 		
-		Edge edge = new Edge(this.vertices.get(from),this.vertices.get(to),type);
-		addEdge(edge);
+		addEdge(vertices.get(from), vertices.get(to), type);
+	}
+	
+	/**
+	 * Adds the loaded edge, in the aggregated mode the same edges are counted
+	 * @param begin vertex from which the edge goes
+	 * @param end vertex to which the edge goes
+	 * @param type type of interaction
+	 */
+	private void addEdge(Vertex begin, Vertex end, Type type) {
+		if (!aggregated) {
+			addEdge(new Edge(begin,end,type));
+			return;
+		}
+		
+		long key = Edge.key(begin.getSymbol(), end.getSymbol(), type);
+		Edge loaded = loadedEdges.get(key);
+		if (loaded != null) {
+			loaded.addAmount();
+			// the loaded edges are kept after the merger only for the incremental update
+			if (merged) pendingEdges.add(loaded);
+			modified();
+		} else {
+			Edge edge = new Edge(begin,end,type);
+			loadedEdges.put(key, edge);
+			addEdge(edge);
+		}
 	}
 	
 	/**
@@ -456,15 +1144,29 @@ public class FacebookGraph implements Graph {
 	}
 	
 	/**
-	 * creating and adding the group to the set of a graph of groups
-	 * @param v vertex to create a group
-	 * @return created group
+	 * Adds the merged edge restored from the snapshot
+	 * @param edge merged edge
 	 */
-	private Group addGroup(Vertex v) {
-		Group newGroup = new Group(v);
-		this.groups.put(v, newGroup);
-		
-		return newGroup;
+	void restoreEdge(Edge edge) {
+		insertEdge(edge);
+	}
+	
+	/**
+	 * Creates the set of edges which compares edges by identity
+	 * @return empty set of edges
+	 */
+	private static Set<Edge> newEdgeSet() {
+		return Collections.newSetFromMap(new IdentityHashMap<Edge, Boolean>());
+	}
+	
+	/**
+	 * the addition of a set of edges during the initialization
+	 * @param newEdges set of edges
+	 */
+	private void insertEdges(List<Edge> newEdges) {
+		for (Edge e : newEdges) {
+			this.insertEdge(e);
+		}
 	}
 	
 	/**
@@ -472,22 +1174,36 @@ public class FacebookGraph implements Graph {
 	 * @param edge removable edge
 	 */
 	public void deleteEdge(Edge edge) {
-		String from = edge.getBegin().getId();
-		String to = edge.getEnd().getId();
+		removeEdge(edge);
+		// the next interactions of the removed edge are loaded as the new edge
+		loadedEdges.clear();
+		rawEdges = null;
+		rawIncomingEdges = null;
 		
-		HashSet<Edge> currEdges = new HashSet<Edge>();
+		// the incremental update is possible only for the added edges
+		merged = false;
+		if (initialized) resetInitialized();
+	}
+	
+	/**
+	 * remove the edge from all sets of edges without changing the indication of initialization
+	 * @param edge removable edge
+	 */
+	private void removeEdge(Edge edge) {
+		int from = symbolOf(edge.getBegin());
+		int to = symbolOf(edge.getEnd());
 		
 		// outgoing edges
-		if (this.edges.containsKey(from)) {
-			currEdges = this.edges.get(from);
+		if (from >= 0 && this.edges.get(from) != null) {
+			this.edges.get(from).remove(edge);
+			sortedEdges.set(from, null);
 		}
-		currEdges.remove(edge);
 
 		// incoming edges
-		if (this.incomingEdges.containsKey(to)) {
-			currEdges = this.incomingEdges.get(to);
+		if (to >= 0 && this.incomingEdges.get(to) != null) {
+			this.incomingEdges.get(to).remove(edge);
+			sortedIncomingEdges.set(to, null);
 		}
-		currEdges.remove(edge);
 		
 		amountEdges--;
 	}
@@ -499,10 +1215,7 @@ public class FacebookGraph implements Graph {
 	 * @param delGroup Group to remove
 	 */
 	public void deleteGroup(Group delGroup) {
-		for (Link l : delGroup.getLinks()) {
-			l.getFollower().removeLink();
-		}
-		groups.remove(delGroup);
+		search.deleteGroup(delGroup);
 	}
 	
 	/**
@@ -510,10 +1223,23 @@ public class FacebookGraph implements Graph {
 	 * Dropping flags for initialization and search.
 	 */
 	public void clear() {
+		// the removed vertices keep the old table of names
+		names = new SymbolTable();
 		vertices.clear();
 		edges.clear();
 		incomingEdges.clear();
-		groups.clear();
+		rawEdges = null;
+		rawIncomingEdges = null;
+		numbered = true;
+		sortedVertices = null;
+		clearSortedEdges();
+		search = newSearch(reductionInfluence);
+		pendingVertices.clear();
+		pendingEdges.clear();
+		loadedEdges.clear();
+		popularityIndex = null;
+		popularUsers = null;
+		merged = false;
 		resetInitialized();
 		resetSearched();
 		amountEdges = 0;
@@ -523,10 +1249,7 @@ public class FacebookGraph implements Graph {
 	 * To delete all groups.
 	 */
 	public void clearGroups() {
-		for (Group g : groups.values()) {
-			deleteGroup(g);
-		}
-		groups.clear();
+		search = newSearch(reductionInfluence);
 		resetSearched();
 	}
 	
@@ -535,8 +1258,8 @@ public class FacebookGraph implements Graph {
 	 */
 	public void newEdge(String from, String to, String type) {
 		if (from.isEmpty() || to.isEmpty()) return;
-		if (!this.vertices.containsKey(from)) this.addVertex(from);
-		if (!this.vertices.containsKey(to)) this.addVertex(to);
+		if (getVertex(from) == null) this.addVertex(from);
+		if (getVertex(to) == null) this.addVertex(to);
 		
 		this.addEdge(from,to,type);
 	}
@@ -548,11 +1271,7 @@ public class FacebookGraph implements Graph {
 	 * @return set of edges constituting personal network
 	 */
 	public List<Edge> getEgonet(Vertex v) {
-		if (this.edges.containsKey(v.getId())) {
-			return getEdges(v.getId());
-		} else {
-			return new LinkedList<Edge>();
-		}
+		return getSortedEdges(symbolOf(v), edges, sortedEdges);
 	}
 	
 	/**
@@ -561,11 +1280,7 @@ public class FacebookGraph implements Graph {
 	 * @return set of vertices constituting followers
 	 */
 	public List<Edge> getFollowers(Vertex v) {
-		if (this.incomingEdges.containsKey(v.getId())) {
-			return getIncomingEdges(v.getId());
-		} else {
-			return new LinkedList<Edge>();
-		}
+		return getSortedEdges(symbolOf(v), incomingEdges, sortedIncomingEdges);
 	}
 
 	/**
@@ -574,11 +1289,25 @@ public class FacebookGraph implements Graph {
 	 * @return group for the group leader
 	 */
 	public Group getGroup(Vertex v) {
-		if (this.groups.containsKey(v)) {
-			return this.groups.get(v);
-		}
-		
-		return this.addGroup(v);
+		return search.getGroup(v);
+	}
+	
+	/**
+	 * Gets user connection to the group
+	 * @param v user
+	 * @return link with group or null, if the groups were not searched
+	 */
+	public Link getLink(Vertex v) {
+		return search.getLink(v);
+	}
+	
+	/**
+	 * Gets vertex by the symbol of its Id, the symbols are given in the order of addition
+	 * @param symbol symbol of Id
+	 * @return vertex
+	 */
+	Vertex getVertex(int symbol) {
+		return vertices.get(symbol);
 	}
 	
 	/**
@@ -587,61 +1316,73 @@ public class FacebookGraph implements Graph {
 	 * @return vertex
 	 */
 	public Vertex getVertex(String v) {
-		return vertices.get(v);
+		int symbol = names.find(v);
+		return symbol < 0 ? null : vertices.get(symbol);
 	}
 	
 	/**
 	 * Finds the vertices with the highest rank value.
-	 * List each time is calculated as it would be 
-	 * necessary to maintain the relevance of these values
+	 * The users are sorted by popularity once after the ranks are defined,
+	 * then the leaders for any percent are found by the binary search.
+	 * Users with equal popularity are taken in the order of ID.
 	 * @param percent
-	 * @return list of Vertex with opinion leaders
+	 * @return unmodifiable list of Vertex with opinion leaders, 
+	 * the first users of the sorted users
 	 */
 	public List<Vertex> getOpinionLeaders(double percent) {
-		List<Vertex> opinionLeaders = new ArrayList<Vertex>();
-		PriorityQueue<Vertex> users = new PriorityQueue<Vertex>(new Comparator<Vertex>() {
+		if (popularityIndex == null) {
+			// the ranks of the graph without initialization
+			definePopularityIndex();
+		}
+		
+		return Collections.unmodifiableList(popularUsers.subList(0, popularityIndex.amount(percent)));
+	}
+	
+	/**
+	 * Visits the edges with the points of popularity between the given vertices.
+	 * The edges are passed to the visitor as they are kept in the graph,
+	 * the edges of each vertex after the edges of the previous one.
+	 * @param subset vertices, the edges of which are visited,
+	 * both the starting and the finishing vertex must be in it
+	 * @param visitor visitor of edges
+	 * @return amount of visited edges
+	 */
+	public int visitEdges(Collection<Vertex> subset, EdgeVisitor visitor) {
+		// the vertices of the subset are marked by their symbols
+		boolean[] marked = new boolean[vertices.size()];
+		for (Vertex v : subset) {
+			int symbol = symbolOf(v);
+			if (symbol >= 0) marked[symbol] = true;
+		}
 
-			@Override
-			public int compare(Vertex o1, Vertex o2) {
-				if (o1.getPopularity() < o2.getPopularity()) {
-					return 1;
-				} else if (o1.getPopularity() > o2.getPopularity()) {
-					return -1;
+		int amount = 0;
+		for (Vertex v : subset) {
+			int symbol = symbolOf(v);
+			if (symbol < 0 || edges.get(symbol) == null) continue;
+
+			for (Edge edge : edges.get(symbol)) {
+				if (edge.getPointsPopularity() > 0 && marked[symbolOf(edge.getEnd())]) {
+					visitor.visit(v, edge.getEnd(), edge.getRank(), edge.getPointsPopularity());
+					amount++;
 				}
-				return 0;
-			}
-			
-		});
-		
-		Double totalPopularity = 0.00;
-		for (Vertex user : vertices.values()) {
-			if (user.getPopularity() > 0.00) {
-				users.add(user);
-				totalPopularity += user.getPopularity();
 			}
 		}
-		
-		Double amountPopularity = percent*totalPopularity/100;
-		
-		while (amountPopularity >= 0 && !users.isEmpty()) {
-			Vertex user = users.remove();
-			amountPopularity -= user.getPopularity();
-			opinionLeaders.add(user);
-		}
-		return opinionLeaders;
+
+		return amount;
 	}
-	
+
 	/**
 	 * Get number of edges for a given set of id vertices...
 	 * @param ce ids set of vertices
 	 * @return amount of edges
 	 */
-	public Integer getAmountEdges(Collection<String> ce) {
-		Integer amount = 0;
+	public int getAmountEdges(Collection<String> ce) {
+		int amount = 0;
 		
 		for (String entry : ce) {
-			if (edges.containsKey(entry)) {
-				for (Edge edge : edges.get(entry)) {
+			int symbol = names.find(entry);
+			if (symbol >= 0 && edges.get(symbol) != null) {
+				for (Edge edge : edges.get(symbol)) {
 					if (edge.getPointsPopularity() > 0) {
 						amount++;
 					}
@@ -658,11 +1399,12 @@ public class FacebookGraph implements Graph {
 	@Override
 	public HashMap<String, HashSet<String>> exportGraph(){
 		HashMap<String, HashSet<String>> theGraph = new HashMap<String, HashSet<String>>();
-		for (Map.Entry<String, Vertex> entry : vertices.entrySet()) {
+		// the strings of names are created only for the export
+		for (Vertex v : vertices) {
 			HashSet<String> currEdges = new HashSet<String>();
-			theGraph.put(entry.getKey(), currEdges);
-			if (edges.containsKey(entry.getKey())) {
-				for (Edge edge : edges.get(entry.getKey())) {
+			theGraph.put(v.getId(), currEdges);
+			if (edges.get(v.getSymbol()) != null) {
+				for (Edge edge : edges.get(v.getSymbol())) {
 					if (edge.getPointsPopularity() > 0) {
 						currEdges.add(edge.getEnd().getId());
 					}
@@ -674,19 +1416,18 @@ public class FacebookGraph implements Graph {
 	}
 
 	/**
-	 * Gets information about groups graph. Contains the ID leader and group size
+	 * Gets groups of graph sorted by size, the largest group is the first
 	 * @return list of groups
 	 */
-	public List<GroupInfo> getGroupsInfo() {
-		List<GroupInfo> groupsInfo = new ArrayList<GroupInfo>();
-		PriorityQueue<Group> p_group = new PriorityQueue<Group>(groups.values());
+	public List<Group> getSortedGroups() {
+		List<Group> sortedGroups = new ArrayList<Group>();
+		PriorityQueue<Group> p_group = new PriorityQueue<Group>(getGroups().values());
 		
 		while (!p_group.isEmpty()) {
-			Group g = p_group.remove();
-			groupsInfo.add(new GroupInfo(g.getLeader().getId(), String.valueOf(g.size())));
+			sortedGroups.add(p_group.remove());
 		}
 		
-		return groupsInfo;
+		return sortedGroups;
 	}
 	
 	/* (non-Javadoc)
@@ -697,11 +1438,9 @@ public class FacebookGraph implements Graph {
 		for (Vertex v : getVertices()) {
 			System.out.print("["+v.getId()+"] (rank:"+v.getRank()+"->(");
 			String coma = "";
-			if (edges.containsKey(v.getId())) {
-				for (Edge edge : getEdges(v.getId())) {
-					System.out.print(coma + edge.getEnd().getId());
-					coma = ",";
-				}
+			for (Edge edge : getEgonet(v)) {
+				System.out.print(coma + edge.getEnd().getId());
+				coma = ",";
 			}
 			System.out.println(")");
 		}
@@ -716,7 +1455,7 @@ public class FacebookGraph implements Graph {
 		System.out.println("==========TOTAL=============");
 		System.out.println("Vertices: "+this.size());
 		System.out.println("Edges: "+this.getAmountEdges());
-		System.out.println("Groups: "+this.groups.size());
+		System.out.println("Groups: "+getGroups().size());
 	}
 	
 	/* (non-Javadoc)
@@ -1,7 +1,10 @@
 package influence.application.model;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 
 /**
  * The interface implements a basic class methods 
@@ -14,18 +17,44 @@ public interface Graph {
     /* Creates a groupView with the given number. */
     public void addVertex(String num);
     
+    /* Creates a vertex with the name given by the bytes of a file.
+     * Returns the symbol of the name, the symbol is kept by the vertex until the graph is cleared. */
+    public int addVertex(ByteBuffer buffer, int start, int end, Charset charset);
+    
     /* Creates an edge from the first groupView to the second. */
     public void addEdge(String from, String to, String type);
     
+    /* Creates an edge of the known type from the first vertex to the second. */
+    public void addEdge(String from, String to, Type type);
+    
+    /* Creates an edge of the known type between the vertices given by the symbols of their names. */
+    public void addEdge(int from, int to, Type type);
+    
     /* Print the influence.application.model.graph */
     public void printGraph();
     
     /* Return amount vertices in the influence.application.model.graph */
     public int size();
     
+    /* Return amount edges, merged edges after the initialization */
+    public int getAmountEdges();
+    
     /* Initializes the calculated parameters */
     public void initialize();
     
+    /* Return the vertex with the given id or null if there is no such vertex */
+    public Vertex getVertex(String id);
+    
+    /* Return the outgoing edges of the vertex (his personal network) */
+    public List<Edge> getEgonet(Vertex v);
+    
+    /* Return the incoming edges of the vertex (his followers) */
+    public List<Edge> getFollowers(Vertex v);
+    
+    /* Return the vertices with the highest popularity, 
+     * which gather the given percent of total popularity */
+    public List<Vertex> getOpinionLeaders(double percent);
+    
     /* Return the graph's connections in a readable format. 
      * The keys in this HashMap are the vertices in the graph.
      * The values are the nodes that are reachable via a directed
@@ -0,0 +1,411 @@
+package influence.application.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the initialized graph. It keeps the names of vertices,
+ * the merged edges with their ranks, the ranks and popularity of vertices
+ * and, if the groups were searched, the groups, so the restored graph
+ * is initialized without loading and merging the edges again.
+ * The snapshot is written through the file channel and read from the file
+ * mapped into memory. The vertices and the edges are kept in columns,
+ * so each column is read into the primitive array at once.
+ *
+ * <pre>
+ * header:   magic "INFL", version, flags, amount of vertices (int),
+ *           length of body, CRC32 of body (long)
+ * body:     reduction of influence (double), amount of edges (int)
+ *           lengths of names by symbol (int), UTF-8 bytes of all names
+ *           ordinals of vertices by symbol (int)
+ *           ranks of vertices by symbol: base rank, rank, base popularity, popularity (double)
+ *           amounts of edges by symbol of begin (int)
+ *           symbols of ends of all edges (int)
+ *           values of all edges: rank, points of popularity, coefficient of rank (double)
+ *           groups, if the flag is set: amount (int), then for each group symbol of leader (int),
+ *           rank (double), amount of links (int) and for each link symbol of follower (int), rank (double)
+ * </pre>
+ *
+ * Vertices are kept in the order of their symbols, so the restored graph
+ * looks through them in the same order as the saved one.
+ * All numbers are big-endian.
+ * @author Muidinov Aider
+ *
+ */
+public class GraphSnapshot {
+
+	/** usual extension of the snapshot file */
+	public static final String EXTENSION = ".infl";
+
+	/** "INFL" */
+	private static final int MAGIC = 0x494E464C;
+
+	/** version of the format, it is changed with any change of the format */
+	private static final int VERSION = 2;
+
+	/** flag of the snapshot with groups */
+	private static final int WITH_GROUPS = 1;
+
+	/** length of the header in bytes */
+	private static final int HEADER = 32;
+
+	/** size of the buffer of writing */
+	private static final int BUFFER = 1 << 16;
+
+	private GraphSnapshot() {
+	}
+
+	/**
+	 * Checks whether the file starts with the header of snapshot
+	 * @param filename path to the file
+	 * @return true if it is the snapshot
+	 */
+	public static boolean isSnapshot(String filename) {
+		Path path = Paths.get(filename);
+		if (!Files.isRegularFile(path)) return false;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+
+			return channel.read(magic) == 4 && magic.getInt(0) == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the snapshot of the graph. The graph is initialized before.
+	 * @param graph graph
+	 * @param filename path to the file
+	 * @return true if the snapshot was written
+	 */
+	public static boolean save(FacebookGraph graph, String filename) {
+		SimpleTimer timer = new SimpleTimer();
+		timer.start("   saving snapshot '"+filename+"'...");
+
+		graph.initialize();
+		boolean withGroups = graph.isSearched();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			Output out = new Output(channel);
+			int size = graph.size();
+
+			out.putDouble(graph.getReductionInfluence());
+			out.putInt(graph.getAmountEdges());
+
+			byte[][] names = new byte[size][];
+			for (int symbol = 0; symbol < size; symbol++) {
+				names[symbol] = graph.getVertex(symbol).getId().getBytes(StandardCharsets.UTF_8);
+				out.putInt(names[symbol].length);
+			}
+			for (byte[] name : names) {
+				out.put(name);
+			}
+
+			for (int symbol = 0; symbol < size; symbol++) {
+				out.putInt(graph.getVertex(symbol).getOrdinal());
+			}
+			for (int symbol = 0; symbol < size; symbol++) {
+				Vertex v = graph.getVertex(symbol);
+				out.putDouble(v.getBaseRank());
+				out.putDouble(v.getRank());
+				out.putDouble(v.getBasePopularity());
+				out.putDouble(v.getPopularity());
+			}
+
+			for (int symbol = 0; symbol < size; symbol++) {
+				out.putInt(graph.getEgonet(graph.getVertex(symbol)).size());
+			}
+			for (int symbol = 0; symbol < size; symbol++) {
+				for (Edge e : graph.getEgonet(graph.getVertex(symbol))) {
+					out.putInt(graph.symbolOf(e.getEnd()));
+				}
+			}
+			for (int symbol = 0; symbol < size; symbol++) {
+				for (Edge e : graph.getEgonet(graph.getVertex(symbol))) {
+					out.putDouble(e.getRank());
+					out.putDouble(e.getPointsPopularity());
+					out.putDouble(e.getKoefRank());
+				}
+			}
+
+			if (withGroups) {
+				writeGroups(graph, out);
+			}
+
+			out.finish(withGroups ? WITH_GROUPS : 0, size);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+
+		timer.finish("...done");
+		return true;
+	}
+
+	/**
+	 * Writes the groups in the order of leaders
+	 * @param graph graph
+	 * @param out output of snapshot
+	 * @throws IOException
+	 */
+	private static void writeGroups(final FacebookGraph graph, Output out) throws IOException {
+		List<Group> groups = new ArrayList<Group>(graph.getGroups().values());
+		Collections.sort(groups, new Comparator<Group>() {
+
+			@Override
+			public int compare(Group g1, Group g2) {
+				return Integer.compare(g1.getLeader().getOrdinal(), g2.getLeader().getOrdinal());
+			}
+
+		});
+
+		out.putInt(groups.size());
+		for (Group g : groups) {
+			out.putInt(graph.symbolOf(g.getLeader()));
+			out.putDouble(g.getRank());
+			out.putInt(g.size());
+			for (Link link : g.getLinks()) {
+				out.putInt(graph.symbolOf(link.getFollower()));
+				out.putDouble(link.getRank());
+			}
+		}
+	}
+
+	/**
+	 * Restores the graph from the snapshot. The old vertices and edges of the graph
+	 * are removed. If the snapshot has no groups, they are searched
+	 * at the next initialization.
+	 * @param graph graph
+	 * @param filename path to the file
+	 * @return true if the snapshot was restored
+	 */
+	public static boolean load(FacebookGraph graph, String filename) {
+		SimpleTimer timer = new SimpleTimer();
+		timer.start("   restoring snapshot '"+filename+"'...");
+
+		graph.clear();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			if (channel.size() < HEADER || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("wrong size of snapshot: "+channel.size());
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.getInt(0) != MAGIC) {
+				throw new IOException("file is not a snapshot of graph");
+			}
+			if (buffer.getInt(4) != VERSION) {
+				throw new IOException("unsupported version of snapshot: "+buffer.getInt(4));
+			}
+			int flags = buffer.getInt(8);
+			int size = buffer.getInt(12);
+			long length = buffer.getLong(16);
+			if (length != channel.size() - HEADER) {
+				throw new IOException("snapshot is truncated");
+			}
+
+			ByteBuffer body = buffer.duplicate();
+			body.position(HEADER);
+			CRC32 crc = new CRC32();
+			crc.update(body);
+			if (crc.getValue() != buffer.getLong(24)) {
+				throw new IOException("checksum of snapshot does not match");
+			}
+
+			body.position(HEADER);
+			restore(graph, body, size, (flags & WITH_GROUPS) != 0);
+		} catch (IOException | RuntimeException e) {
+			// the damaged snapshot leaves the graph empty
+			e.printStackTrace();
+			graph.clear();
+			return false;
+		}
+
+		timer.finish("...done");
+		return true;
+	}
+
+	/**
+	 * Reads the body of the snapshot into the empty graph
+	 * @param graph graph
+	 * @param body body of the snapshot
+	 * @param size amount of vertices
+	 * @param withGroups the snapshot has groups
+	 */
+	private static void restore(FacebookGraph graph, ByteBuffer body, int size, boolean withGroups) {
+		double reductionInfluence = body.getDouble();
+		int amountEdges = body.getInt();
+
+		// the names are added in the order of symbols, so the symbols are the same
+		int[] lengths = getInts(body, size);
+		int start = body.position();
+		for (int symbol = 0; symbol < size; symbol++) {
+			graph.addVertex(body, start, start + lengths[symbol], StandardCharsets.UTF_8);
+			start += lengths[symbol];
+		}
+		body.position(start);
+
+		// the ordinals are restored before the edges, which are sorted by them
+		int[] ordinals = getInts(body, size);
+		double[] ranks = getDoubles(body, 4 * size);
+		for (int symbol = 0; symbol < size; symbol++) {
+			Vertex v = graph.getVertex(symbol);
+			v.setOrdinal(ordinals[symbol]);
+			v.restoreRanks(ranks[4 * symbol], ranks[4 * symbol + 1], ranks[4 * symbol + 2], ranks[4 * symbol + 3]);
+		}
+
+		int[] amounts = getInts(body, size);
+		int[] ends = getInts(body, amountEdges);
+		double[] values = getDoubles(body, 3 * amountEdges);
+		int e = 0;
+		for (int symbol = 0; symbol < size; symbol++) {
+			Vertex begin = graph.getVertex(symbol);
+			for (int last = e + amounts[symbol]; e < last; e++) {
+				Edge edge = new Edge(begin, graph.getVertex(ends[e]), Type.GENERAL, values[3 * e], values[3 * e + 1]);
+				edge.setKoefRank(values[3 * e + 2]);
+				graph.restoreEdge(edge);
+			}
+		}
+		if (graph.getAmountEdges() != amountEdges) {
+			throw new IllegalStateException("wrong amount of edges in snapshot: "+graph.getAmountEdges());
+		}
+
+		graph.setReductionInfluence(reductionInfluence);
+		GroupSearch search = null;
+		if (withGroups) {
+			search = graph.newSearch(reductionInfluence);
+			int amountGroups = body.getInt();
+			for (int i = 0; i < amountGroups; i++) {
+				Group group = search.getGroup(graph.getVertex(body.getInt()));
+				double rank = body.getDouble();
+				int amountLinks = body.getInt();
+				for (int j = 0; j < amountLinks; j++) {
+					Vertex follower = graph.getVertex(body.getInt());
+					search.addLink(new Link(follower, group, body.getDouble()));
+				}
+				group.setRank(rank);
+			}
+		}
+
+		graph.restored(search);
+	}
+
+	/**
+	 * Reads the column of ints
+	 * @param body body of the snapshot
+	 * @param amount amount of values
+	 * @return values
+	 */
+	private static int[] getInts(ByteBuffer body, int amount) {
+		int[] values = new int[amount];
+		body.asIntBuffer().get(values);
+		body.position(body.position() + 4 * amount);
+		return values;
+	}
+
+	/**
+	 * Reads the column of doubles
+	 * @param body body of the snapshot
+	 * @param amount amount of values
+	 * @return values
+	 */
+	private static double[] getDoubles(ByteBuffer body, int amount) {
+		double[] values = new double[amount];
+		body.asDoubleBuffer().get(values);
+		body.position(body.position() + 8 * amount);
+		return values;
+	}
+
+	/**
+	 * Buffered output of the snapshot to the channel.
+	 * The checksum of body is calculated on the way, the header is written at the end.
+	 */
+	private static class Output {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private final CRC32 crc;
+		private long length;
+
+		private Output(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocate(BUFFER);
+			this.crc = new CRC32();
+			this.length = 0;
+
+			// the place of header
+			channel.position(HEADER);
+		}
+
+		private void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		private void putDouble(double value) throws IOException {
+			ensure(8);
+			buffer.putDouble(value);
+		}
+
+		private void put(byte[] bytes) throws IOException {
+			int offset = 0;
+			while (offset < bytes.length) {
+				ensure(1);
+				int amount = Math.min(buffer.remaining(), bytes.length - offset);
+				buffer.put(bytes, offset, amount);
+				offset += amount;
+			}
+		}
+
+		private void ensure(int amount) throws IOException {
+			if (buffer.remaining() < amount) flush();
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			crc.update(buffer.array(), 0, buffer.limit());
+			length += buffer.limit();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * Writes the rest of body and the header
+		 * @param flags flags of snapshot
+		 * @param size amount of vertices
+		 * @throws IOException
+		 */
+		private void finish(int flags, int size) throws IOException {
+			flush();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(flags);
+			header.putInt(size);
+			header.putLong(length);
+			header.putLong(crc.getValue());
+			header.flip();
+
+			long position = 0;
+			while (header.hasRemaining()) {
+				position += channel.write(header, position);
+			}
+		}
+	}
+}
@@ -12,7 +12,7 @@ import java.util.HashSet;
  */
 public class Group implements Comparable<Group>{
 	private Vertex leader;
-	private Double rank;//equal to the sum of the ranks links
+	private double rank;//equal to the sum of the ranks links
 	private HashSet<Link> links;
 
 	/**
@@ -37,7 +37,7 @@ public class Group implements Comparable<Group>{
 	 * Get rank of the group
 	 * @return rank of the group
 	 */
-	public Double getRank() {
+	public double getRank() {
 		return rank;
 	}
 	
@@ -52,10 +52,10 @@ public class Group implements Comparable<Group>{
 	/** Gets the user with the highest rank */
 	public Vertex getMajor() {
 		Vertex major = null;
-		Double maxRank = 0.0;
+		double maxRank = 0.0;
 		
 		for (Link l : links) {
-			Double currRank = l.getFollower().getRank();
+			double currRank = l.getFollower().getRank();
 			
 			if (currRank > maxRank) {
 				maxRank = currRank;
@@ -66,6 +66,14 @@ public class Group implements Comparable<Group>{
 		return major;
 	}
 
+	/**
+	 * Sets the rank of the group restored from the snapshot
+	 * @param rank rank of group
+	 */
+	void setRank(double rank) {
+		this.rank = rank;
+	}
+
 	/**
 	 * Adding a new link into the group
 	 * @param link adding link
@@ -98,12 +106,16 @@ public class Group implements Comparable<Group>{
 		if (obj instanceof Group) {
 			Group g = (Group) (obj);
 			Vertex v = g.getLeader();
-			return v.getId().equals(this.leader.getId());
+			return v.equals(this.leader);
 		}
 		
 		return false;
 	}
 	
+	public int hashCode() {
+		return leader.hashCode();
+	}
+	
 	/**
 	 * Display detail info of the group
 	 * @param theGraph this graph
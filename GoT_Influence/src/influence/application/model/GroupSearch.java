@@ -0,0 +1,723 @@
+package influence.application.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * State of one search of groups: the links of users and the groups
+ * for the given reduction of influence. The search only reads the merged edges
+ * and the ranks of the graph, therefore several searches with the different
+ * coefficients can be held on the same initialized graph at the same time.
+ * @author Muidinov Aider
+ *
+ */
+public class GroupSearch {
+	/** default amount of flips between two groups after which the vertex is frozen,
+	 * 0 without detection of oscillation, so the search chooses the groups as before */
+	public static final int DEFAULT_MAX_FLIPS = 0;
+
+	/**
+	 * Order in which the vertices are taken from the queue of the search
+	 */
+	public enum Order {
+		/** first in - first out, the vertices of the beginning are taken by id */
+		FIFO,
+		/** the vertex with the strongest changed influence is taken first:
+		 * at the beginning by the rank of vertex, then by the rank of the edge
+		 * to the changed user multiplied by the rank of his new link */
+		PRIORITY,
+		/** rounds on the pool of threads: the vertices are coloured so that
+		 * the users of one colour have no edges between them, and all queued users
+		 * of one colour choose their groups at once */
+		PARALLEL
+	}
+
+	/**
+	 * Queue of vertices of the search. Each vertex is queued only once.
+	 */
+	private interface Worklist {
+		boolean isEmpty();
+		int size();
+		Vertex poll();
+		void offer(Vertex v, double priority);
+	}
+
+	private FacebookGraph graph;
+
+	/** It determines the degree of reducing the influence of the group
+	 * on the indirect followers. */
+	private double reductionInfluence;
+
+	/** groups found by the search. As a Map key is set id group leader */
+	private HashMap<Vertex,Group> groups;
+
+	/** link of each user with his group */
+	private HashMap<Vertex,Link> links;
+
+	/** the largest amount of vertices taken from the queue, 0 without limit */
+	private int maxSteps;
+
+	/** amount of flips between two groups after which the vertex is frozen,
+	 * 0 without detection of oscillation */
+	private int maxFlips;
+
+	/** order of the queue of the search */
+	private Order order;
+
+	/** metrics of the search */
+	private SearchReport report;
+
+	/**
+	 * The main constructor
+	 * @param graph initialized graph
+	 * @param reductionInfluence reduction of influence
+	 */
+	public GroupSearch(FacebookGraph graph, double reductionInfluence) {
+		this.graph = graph;
+		this.reductionInfluence = reductionInfluence;
+		this.groups = new HashMap<Vertex,Group>();
+		this.links = new HashMap<Vertex,Link>();
+		this.maxSteps = 0;
+		this.maxFlips = DEFAULT_MAX_FLIPS;
+		this.order = Order.FIFO;
+		this.report = new SearchReport();
+	}
+
+	/**
+	 * Gets the graph
+	 * @return graph
+	 */
+	public FacebookGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Gets the value for reductionInfluence
+	 * @return reductionInfluence
+	 */
+	public double getReductionInfluence() {
+		return reductionInfluence;
+	}
+
+	/**
+	 * Gets the found groups
+	 * @return groups
+	 */
+	public HashMap<Vertex,Group> getGroups() {
+		return groups;
+	}
+
+	/**
+	 * Gets the amount of vertices taken from the queue of the search
+	 * @return amount of steps
+	 */
+	public int getAmountSteps() {
+		return report.getAmountSteps();
+	}
+
+	/**
+	 * Gets the amount of changes of groups
+	 * @return amount of changes
+	 */
+	public int getAmountChanges() {
+		return report.getAmountChanges();
+	}
+
+	/**
+	 * Gets the metrics of the search
+	 * @return report of the search
+	 */
+	public SearchReport getReport() {
+		return report;
+	}
+
+	/**
+	 * Gets the limit of steps
+	 * @return the largest amount of steps, 0 without limit
+	 */
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+
+	/**
+	 * Sets the limit of steps. When it is reached, the search stops
+	 * and keeps the groups found so far.
+	 * @param maxSteps the largest amount of steps, 0 without limit
+	 */
+	public void setMaxSteps(int maxSteps) {
+		this.maxSteps = maxSteps;
+	}
+
+	/**
+	 * Gets the amount of flips after which the vertex is frozen
+	 * @return amount of flips, 0 without detection
+	 */
+	public int getMaxFlips() {
+		return maxFlips;
+	}
+
+	/**
+	 * Sets the amount of flips between the same two groups after which
+	 * the vertex does not change its group any more
+	 * @param maxFlips amount of flips, 0 without detection
+	 */
+	public void setMaxFlips(int maxFlips) {
+		this.maxFlips = maxFlips;
+	}
+
+	/**
+	 * Compares the groups with the groups of other search of the same graph
+	 * @param other other search
+	 * @return part of users with the same group leader, from 0 to 1
+	 */
+	public double agreement(GroupSearch other) {
+		List<Vertex> vertices = graph.getVertices();
+		if (vertices.isEmpty()) return 1.0;
+
+		int same = 0;
+		for (Vertex v : vertices) {
+			Link l1 = getLink(v);
+			Link l2 = other.getLink(v);
+			if (l1 != null && l2 != null
+					&& l1.getGroup().getLeader().equals(l2.getGroup().getLeader())) {
+				same++;
+			}
+		}
+
+		return (double) same / vertices.size();
+	}
+
+	/**
+	 * Gets the size of the largest group
+	 * @return size of the largest group
+	 */
+	public int getLargestGroup() {
+		int largest = 0;
+		for (Group g : groups.values()) {
+			largest = Math.max(largest, g.size());
+		}
+
+		return largest;
+	}
+
+	/**
+	 * Gets user connection to the group
+	 * @param v user
+	 * @return link with group or null
+	 */
+	public Link getLink(Vertex v) {
+		return links.get(v);
+	}
+
+	/**
+	 * Gets user connection to the group. It creates a new link is not specified
+	 * @param v user
+	 * @return link with group
+	 */
+	public Link findLink(Vertex v) {
+		Link link = links.get(v);
+		if (link == null) {
+			link = new Link(v, this);
+			links.put(v, link);
+		}
+
+		return link;
+	}
+
+	/**
+	 * Adds the link of user restored from the snapshot
+	 * @param link link with group
+	 */
+	void addLink(Link link) {
+		links.put(link.getFollower(), link);
+	}
+
+	/**
+	 * Deleting connection of user with the group
+	 * @param v user
+	 */
+	public void removeLink(Vertex v) {
+		links.remove(v);
+	}
+
+	/**
+	 * Gets the group for the group leader
+	 * @param v group leader
+	 * @return group for the group leader
+	 */
+	public Group getGroup(Vertex v) {
+		if (this.groups.containsKey(v)) {
+			return this.groups.get(v);
+		}
+
+		return this.addGroup(v);
+	}
+
+	/**
+	 * creating and adding the group to the set of groups
+	 * @param v vertex to create a group
+	 * @return created group
+	 */
+	private Group addGroup(Vertex v) {
+		Group newGroup = new Group(v);
+		this.groups.put(v, newGroup);
+
+		return newGroup;
+	}
+
+	/**
+	 * Delete Group. To do this, remove the
+	 * connection with this group for each node
+	 * and remove the group from the set of groups
+	 * @param delGroup Group to remove
+	 */
+	public void deleteGroup(Group delGroup) {
+		for (Link l : delGroup.getLinks()) {
+			removeLink(l.getFollower());
+		}
+		groups.remove(delGroup);
+	}
+
+	/**
+	 * Gets the order of the queue of the search
+	 * @return order
+	 */
+	public Order getOrder() {
+		return order;
+	}
+
+	/**
+	 * Sets the order of the queue of the search
+	 * @param order order
+	 */
+	public void setOrder(Order order) {
+		this.order = order;
+	}
+
+	/**
+	 * Search groups and delete empty groups
+	 */
+	public void searchGroups() {
+		SimpleTimer timer = new SimpleTimer();
+		report = new SearchReport();
+
+		// We prepare a set of all vertices for search for groups
+		HashSet<Vertex> hashModified = new HashSet<Vertex>(graph.getVertices());
+
+		// basic search groups
+		timer.start(null);
+		defineGroups(hashModified);
+		timer.finish(null);
+		report.addPhase("search", timer.secResult());
+
+		/* re-search for merge groups in which only one members.
+		 * This must be done, because there are situations where
+		 * all members of the group moved on to other groups.
+		 * The stopped search does not have links of all users, so it is skipped. */
+		if (report.getStatus() != SearchReport.Status.STEP_LIMIT) {
+			timer.start(null);
+			defineGroups(resetSingleGroup());
+			timer.finish(null);
+			report.addPhase("single groups", timer.secResult());
+		}
+
+		// delete empty groups, because they do not carry useful information
+		timer.start(null);
+		removeEmptyGroups();
+		timer.finish(null);
+		report.addPhase("empty groups", timer.secResult());
+	}
+
+	/**
+	 * Updates the found groups. The links of the given vertices are created again,
+	 * and the search starts only from these vertices.
+	 * @param modified vertices touched by the new edges
+	 */
+	public void updateGroups(Set<Vertex> modified) {
+		SimpleTimer timer = new SimpleTimer();
+		report = new SearchReport();
+
+		for (Vertex v : modified) {
+			Link link = getLink(v);
+			if (link != null) {
+				link.getGroup().deleteLink(link);
+				removeLink(v);
+			}
+		}
+
+		timer.start(null);
+		defineGroups(new HashSet<Vertex>(modified));
+		timer.finish(null);
+		report.addPhase("update", timer.secResult());
+
+		if (report.getStatus() != SearchReport.Status.STEP_LIMIT) {
+			timer.start(null);
+			defineGroups(resetSingleGroup());
+			timer.finish(null);
+			report.addPhase("single groups", timer.secResult());
+		}
+
+		timer.start(null);
+		removeEmptyGroups();
+		timer.finish(null);
+		report.addPhase("empty groups", timer.secResult());
+	}
+
+	/**
+	 * Determine the set of vertices with one member
+	 * @return groups in which only one members
+	 */
+	private HashSet<Vertex> resetSingleGroup() {
+		HashSet<Vertex> hashModified = new HashSet<Vertex>();
+
+		for (Group g : this.groups.values()) {
+			if (g.size() == 1) {
+				for (Link l : g.getLinks()) {
+					if (!hashModified.contains(l.getFollower())) {
+						l.resetRank();
+						hashModified.add(l.getFollower());
+						Group leaderGroup = getLink(g.getLeader()).getGroup();
+						if (leaderGroup.getLeader().equals(l.getFollower())
+								&& leaderGroup.size() == 1)
+							hashModified.add(g.getLeader());
+					}
+				}
+			}
+		}
+
+		return hashModified;
+	}
+
+	/**
+	 * Defines a group of users.
+	 * Search is only for a given set of vertices.
+	 * It stops when the queue is empty or the limit of steps is reached.
+	 * @param hashModified
+	 */
+	private void defineGroups(HashSet<Vertex> hashModified) {
+		if (order == Order.PARALLEL) {
+			defineGroupsInRounds(hashModified);
+			return;
+		}
+
+		// create queue of vertices
+		Worklist modified = order == Order.PRIORITY ? priorityWorklist(hashModified) : fifoWorklist(hashModified);
+		report.updateQueue(modified.size());
+
+		// the current round ends after the vertices, which are in the queue now
+		int roundSteps = modified.size();
+		int roundChanges = 0;
+
+		while (!modified.isEmpty()) {
+			if (maxSteps > 0 && report.getAmountSteps() >= maxSteps) {
+				report.stop();
+				if (roundChanges > 0) {
+					report.addRound(roundChanges);
+				}
+				return;
+			}
+
+			Vertex user = modified.poll();
+			report.addStep();
+			Link link = findLink(user);
+
+			/* In this condition, we first find the connection with the group
+			 * or create one, if the group has not yet been created.
+			 * Then define the strongest group of adherents in our personal network.
+			 * The vertex, which flips between two groups, keeps its group. */
+			if ((maxFlips == 0 || link.getFlips() < maxFlips) && link.changeGroup(this)) {
+				roundChanges++;
+				if (maxFlips > 0 && link.getFlips() == maxFlips) {
+					report.addOscillating(user);
+				}
+
+				/* if the current group has been changed, it will add to the queue
+				 * all users to incoming edges, because perhaps it could change their group */
+				for (Edge e : graph.getFollowers(user)) {
+					modified.offer(e.getBegin(), e.getRank() * link.getRank());
+				}
+				report.updateQueue(modified.size());
+			}
+
+			if (--roundSteps == 0) {
+				report.addRound(roundChanges);
+				roundSteps = modified.size();
+				roundChanges = 0;
+			}
+		}
+	}
+
+	/**
+	 * Defines a group of users in rounds. The users are coloured, so that
+	 * the users of one colour are not connected. In each round the queued users
+	 * are taken colour by colour. The strongest adherents of all users of the colour 
+	 * are found in parallel, because they do not depend on each other, then the users 
+	 * move to their new groups. Thus the search works as the sequential search 
+	 * in the order of colours, and the result does not depend on the amount of threads.
+	 * @param hashModified vertices of the first round
+	 */
+	private void defineGroupsInRounds(HashSet<Vertex> hashModified) {
+		List<Vertex> vertices = graph.getVertices();
+		int[] colours = colourVertices(vertices);
+
+		// the links of all users are created before, so the colours only read them
+		for (Vertex v : vertices) {
+			findLink(v);
+		}
+
+		BitSet queued = new BitSet(vertices.size());
+		for (Vertex v : hashModified) {
+			queued.set(v.getOrdinal());
+		}
+
+		while (!queued.isEmpty()) {
+			report.updateQueue(queued.cardinality());
+			BitSet next = new BitSet(vertices.size());
+			int roundChanges = 0;
+
+			for (Vertex[] users : splitByColour(queued, colours, vertices)) {
+				int amount = users.length;
+				if (maxSteps > 0) {
+					if (report.getAmountSteps() >= maxSteps) {
+						report.stop();
+						report.addRound(roundChanges);
+						return;
+					}
+					amount = Math.min(amount, maxSteps - report.getAmountSteps());
+				}
+
+				Adherents[] strongest = new Adherents[amount];
+				ForkJoinPool.commonPool().invoke(new AdherentsTask(this, users, strongest, 0, amount));
+
+				for (int i = 0; i < amount; i++) {
+					report.addStep();
+					queued.clear(users[i].getOrdinal());
+					Link link = getLink(users[i]);
+
+					if ((maxFlips == 0 || link.getFlips() < maxFlips) && link.moveTo(strongest[i])) {
+						roundChanges++;
+						if (maxFlips > 0 && link.getFlips() == maxFlips) {
+							report.addOscillating(users[i]);
+						}
+
+						// the follower, which waits in this round, is not queued again
+						for (Edge e : graph.getFollowers(users[i])) {
+							int follower = e.getBegin().getOrdinal();
+							if (!queued.get(follower)) {
+								next.set(follower);
+							}
+						}
+					}
+				}
+			}
+
+			report.addRound(roundChanges);
+			queued = next;
+		}
+	}
+
+	/**
+	 * Colours the vertices greedily in the order of ids. 
+	 * The vertices connected by an edge in any direction get the different colours.
+	 * @param vertices vertices sorted by id
+	 * @return colour of each vertex by ordinal
+	 */
+	private int[] colourVertices(List<Vertex> vertices) {
+		int[] colours = new int[vertices.size()];
+		Arrays.fill(colours, -1);
+		BitSet used = new BitSet();
+
+		for (Vertex v : vertices) {
+			used.clear();
+			for (Edge e : graph.getEgonet(v)) {
+				int colour = colours[e.getEnd().getOrdinal()];
+				if (colour >= 0) used.set(colour);
+			}
+			for (Edge e : graph.getFollowers(v)) {
+				int colour = colours[e.getBegin().getOrdinal()];
+				if (colour >= 0) used.set(colour);
+			}
+			colours[v.getOrdinal()] = used.nextClearBit(0);
+		}
+
+		return colours;
+	}
+
+	/**
+	 * Splits the queued vertices by colour
+	 * @param queued ordinals of queued vertices
+	 * @param colours colour of each vertex by ordinal
+	 * @param vertices vertices sorted by id
+	 * @return vertices of each colour sorted by id, without empty colours
+	 */
+	private List<Vertex[]> splitByColour(BitSet queued, int[] colours, List<Vertex> vertices) {
+		int amountColours = 0;
+		for (int i = queued.nextSetBit(0); i >= 0; i = queued.nextSetBit(i + 1)) {
+			amountColours = Math.max(amountColours, colours[i] + 1);
+		}
+
+		int[] sizes = new int[amountColours];
+		for (int i = queued.nextSetBit(0); i >= 0; i = queued.nextSetBit(i + 1)) {
+			sizes[colours[i]]++;
+		}
+
+		Vertex[][] users = new Vertex[amountColours][];
+		for (int c = 0; c < amountColours; c++) {
+			users[c] = new Vertex[sizes[c]];
+			sizes[c] = 0;
+		}
+		for (int i = queued.nextSetBit(0); i >= 0; i = queued.nextSetBit(i + 1)) {
+			users[colours[i]][sizes[colours[i]]++] = vertices.get(i);
+		}
+
+		List<Vertex[]> split = new ArrayList<Vertex[]>();
+		for (Vertex[] u : users) {
+			if (u.length > 0) split.add(u);
+		}
+
+		return split;
+	}
+
+	/**
+	 * Task of the search of the strongest adherents for a range of users.
+	 * Range is split in half until it becomes small enough.
+	 */
+	private static class AdherentsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** the size of range calculated without splitting */
+		private static final int THRESHOLD = 256;
+
+		private final GroupSearch search;
+		private final Vertex[] users;
+		private final Adherents[] strongest;
+		private final int from;
+		private final int to;
+
+		private AdherentsTask(GroupSearch search, Vertex[] users, Adherents[] strongest, int from, int to) {
+			this.search = search;
+			this.users = users;
+			this.strongest = strongest;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new AdherentsTask(search, users, strongest, from, middle),
+						new AdherentsTask(search, users, strongest, middle, to));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				strongest[i] = search.getLink(users[i]).strongestAdherents(search);
+			}
+		}
+	}
+
+	/**
+	 * Creates the queue of vertices on a first in - first out. 
+	 * The priorities are ignored.
+	 * @param hashModified vertices of the beginning, the set is used to check queued vertices
+	 * @return queue
+	 */
+	private Worklist fifoWorklist(final HashSet<Vertex> hashModified) {
+		final LinkedList<Vertex> modified = (LinkedList<Vertex>) graph.getVertices(hashModified);
+
+		return new Worklist() {
+
+			@Override
+			public boolean isEmpty() {
+				return modified.isEmpty();
+			}
+
+			@Override
+			public int size() {
+				return modified.size();
+			}
+
+			@Override
+			public Vertex poll() {
+				Vertex user = modified.removeFirst();
+				hashModified.remove(user);
+				return user;
+			}
+
+			@Override
+			public void offer(Vertex v, double priority) {
+				if (!hashModified.contains(v)) {
+					modified.addLast(v);
+					hashModified.add(v);
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Creates the queue of vertices by priority. 
+	 * The vertices are kept as the ordinals in the indexed heap.
+	 * @param hashModified vertices of the beginning
+	 * @return queue
+	 */
+	private Worklist priorityWorklist(HashSet<Vertex> hashModified) {
+		final List<Vertex> vertices = graph.getVertices();
+		final IndexedHeap heap = new IndexedHeap(vertices.size());
+		for (Vertex v : hashModified) {
+			heap.offer(v.getOrdinal(), v.getRank());
+		}
+
+		return new Worklist() {
+
+			@Override
+			public boolean isEmpty() {
+				return heap.isEmpty();
+			}
+
+			@Override
+			public int size() {
+				return heap.size();
+			}
+
+			@Override
+			public Vertex poll() {
+				return vertices.get(heap.poll());
+			}
+
+			@Override
+			public void offer(Vertex v, double priority) {
+				heap.offer(v.getOrdinal(), priority);
+			}
+
+		};
+	}
+
+	/**
+	 * Remove empty groups, because they no longer need us.
+	 */
+	private void removeEmptyGroups() {
+		Set<Vertex> removeGroups = new HashSet<Vertex>();
+
+		for (Map.Entry<Vertex, Group> entry : this.groups.entrySet()) {
+			int size = entry.getValue().getLinks().size();
+			if (size == 0) {
+				removeGroups.add(entry.getKey());
+			}
+		}
+
+		for (Vertex g : removeGroups) {
+			this.groups.remove(g);
+		}
+	}
+}
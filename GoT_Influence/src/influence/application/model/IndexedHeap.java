@@ -0,0 +1,149 @@
+package influence.application.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Queue of vertex ordinals ordered by priority: the highest priority is taken first,
+ * for the equal priorities the smaller ordinal is taken first.
+ * The binary heap keeps the position of each ordinal, therefore the priority
+ * of the queued vertex can be raised in place. The queued ordinals are marked in the bitset.
+ * @author Muidinov Aider
+ *
+ */
+class IndexedHeap {
+	/** ordinals in the order of the heap */
+	private int[] heap;
+
+	/** position of each ordinal in the heap */
+	private int[] positions;
+
+	/** priority of each ordinal */
+	private double[] priorities;
+
+	/** queued ordinals */
+	private BitSet queued;
+
+	private int size;
+
+	/**
+	 * The main constructor
+	 * @param capacity amount of ordinals, all of them are less than capacity
+	 */
+	public IndexedHeap(int capacity) {
+		this.heap = new int[capacity];
+		this.positions = new int[capacity];
+		this.priorities = new double[capacity];
+		this.queued = new BitSet(capacity);
+		this.size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the ordinal is queued
+	 * @param ordinal ordinal of vertex
+	 * @return true if it is queued
+	 */
+	public boolean contains(int ordinal) {
+		return queued.get(ordinal);
+	}
+
+	/**
+	 * Adds the ordinal to the queue. If it is queued already, its priority
+	 * is raised to the given one, the lower priority is ignored.
+	 * @param ordinal ordinal of vertex
+	 * @param priority priority of vertex
+	 */
+	public void offer(int ordinal, double priority) {
+		if (ordinal >= positions.length) {
+			grow(ordinal + 1);
+		}
+
+		if (queued.get(ordinal)) {
+			if (priority > priorities[ordinal]) {
+				priorities[ordinal] = priority;
+				siftUp(positions[ordinal]);
+			}
+			return;
+		}
+
+		queued.set(ordinal);
+		priorities[ordinal] = priority;
+		heap[size] = ordinal;
+		positions[ordinal] = size;
+		siftUp(size++);
+	}
+
+	/**
+	 * Takes the ordinal with the highest priority
+	 * @return ordinal of vertex
+	 */
+	public int poll() {
+		int first = heap[0];
+		queued.clear(first);
+
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+
+		return first;
+	}
+
+	/**
+	 * Compares two ordinals in the order of the queue
+	 * @return true if a is taken before b
+	 */
+	private boolean before(int a, int b) {
+		if (priorities[a] != priorities[b]) {
+			return priorities[a] > priorities[b];
+		}
+		return a < b;
+	}
+
+	private void siftUp(int i) {
+		int ordinal = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!before(ordinal, heap[parent])) break;
+			heap[i] = heap[parent];
+			positions[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = ordinal;
+		positions[ordinal] = i;
+	}
+
+	private void siftDown(int i) {
+		int ordinal = heap[i];
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && before(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!before(heap[child], ordinal)) break;
+			heap[i] = heap[child];
+			positions[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = ordinal;
+		positions[ordinal] = i;
+	}
+
+	private void grow(int capacity) {
+		capacity = Math.max(capacity, positions.length * 2);
+		heap = Arrays.copyOf(heap, capacity);
+		positions = Arrays.copyOf(positions, capacity);
+		priorities = Arrays.copyOf(priorities, capacity);
+	}
+}
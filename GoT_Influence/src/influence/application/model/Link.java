@@ -1,8 +1,5 @@
 package influence.application.model;
 
-import java.util.HashMap;
-import java.util.PriorityQueue;
-
 /**
  * It represents a user connection to the group. 
  * Stores group, followers and the power of communication. 
@@ -13,18 +10,35 @@ import java.util.PriorityQueue;
 public class Link implements Comparable<Link> {
 	private Group group;
 	private Vertex follower;
-	private Double rank;
+	private double rank;
+	/** group before the last change */
+	private Group previousGroup;
+	/** amount of returns to the previous group */
+	private int flips;
 	
 	/**
 	 * The main communication constructor. Adds a link to the 
 	 * specified successor. Defines the its group or create 
 	 * a new group as the base (based only on direct links)
 	 * @param follower new follower group
-	 * @param theGraph this graph
+	 * @param search search of groups
 	 */
-	public Link(Vertex follower, FacebookGraph theGraph) {
+	public Link(Vertex follower, GroupSearch search) {
 		this.follower = follower;
-		defineGroup(theGraph);
+		defineGroup(search);
+		this.group.addLink(this);
+	}
+	
+	/**
+	 * Creates the link restored from the snapshot with the group found before
+	 * @param follower follower of group
+	 * @param group group of follower
+	 * @param rank rank of link
+	 */
+	Link(Vertex follower, Group group, double rank) {
+		this.follower = follower;
+		this.group = group;
+		this.rank = rank;
 		this.group.addLink(this);
 	}
 	
@@ -32,7 +46,7 @@ public class Link implements Comparable<Link> {
 	 * getting rank of link
 	 * @return rank of link
 	 */
-	public Double getRank() {
+	public double getRank() {
 		return rank;
 	}
 
@@ -52,6 +66,15 @@ public class Link implements Comparable<Link> {
 		return follower;
 	}
 	
+	/**
+	 * Gets the amount of changes by which the follower returned
+	 * to the group he had left just before, i.e. flipped between two groups
+	 * @return amount of flips
+	 */
+	public int getFlips() {
+		return flips;
+	}
+	
 	/**
 	 * reset of rank
 	 */
@@ -64,20 +87,20 @@ public class Link implements Comparable<Link> {
 	 * Select from vertex the personal network, which has 
 	 * the greatest rank and for which the highest rank of edge. 
 	 * Taken into account the product of these parameters.
-	 * @param theGraph this graph
+	 * @param search search of groups
 	 */
-	private void defineGroup(FacebookGraph theGraph) {
-		Double maxRank = 0.00;
+	private void defineGroup(GroupSearch search) {
+		double maxRank = 0.00;
 		Vertex leader = this.follower;
 		
-		for (Edge e : theGraph.getEgonet(this.follower)) {
-			Double currRank = e.getRank()*e.getEnd().getRank();
+		for (Edge e : search.getGraph().getEgonet(this.follower)) {
+			double currRank = e.getRank()*e.getEnd().getRank();
 			if (currRank > maxRank) {
 				leader = e.getEnd();
 				maxRank = currRank;
 			}
 		}
-		this.group = theGraph.getGroup(leader);
+		this.group = search.getGroup(leader);
 		this.rank = maxRank;
 		this.group.addLink(this);
 	}
@@ -89,48 +112,56 @@ public class Link implements Comparable<Link> {
 	 * the group will be selected. The new connection will be equal to 
 	 * the rank of middle-ranking adherents links and will be reduced 
 	 * by a factor of influence.
-	 * @param theGraph this graph
+	 * @param search search of groups
 	 * @return indication was to change the group or not
 	 */
-	public boolean changeGroup(FacebookGraph theGraph) {
-		// get a group of user egonet
-		HashMap<Group, Adherents> groups = new HashMap<Group, Adherents>();
-		Adherents adherents = new Adherents(this.group,this.getRank());
-		groups.put(this.group, adherents);
-		Adherents mainAdherents = adherents;
+	public boolean changeGroup(GroupSearch search) {
+		AdherentsTally tally = AdherentsTally.get();
+		tally.count(this, search);
 
-		for (Edge v : theGraph.getEgonet(follower)) {
-			Link link = v.getEnd().findLink(theGraph);
-			Group currGroup = link.getGroup();
-
-			if (groups.containsKey(currGroup)) {
-				adherents = groups.get(currGroup);
-				adherents.addRank(link.getRank() * theGraph.getReductionInfluence());
-			} else {
-				adherents = new Adherents(link.getGroup(),link.getRank() * theGraph.getReductionInfluence());
-				groups.put(currGroup, adherents);
-			}
-		}
-
-		// find the adherents with the highest rank
-		Double maxRank = 0.00;
-		PriorityQueue<Adherents> p_adherents = new PriorityQueue<Adherents>(groups.values());
-
-		while (!p_adherents.isEmpty()) {
-			Adherents a = p_adherents.remove();
-			Double currRank = a.getFullRank();
-			if (currRank > maxRank) {
-				maxRank = currRank;
-				mainAdherents = a;
-			}
-		}
+		return moveTo(tally.getMainGroup(), tally.getMainRank());
+	}
+	
+	/**
+	 * Finds the adherents with the highest rank in the personal network. 
+	 * It does not change the links, therefore it can be called 
+	 * for many users at once, when the links of their personal networks exist.
+	 * @param search search of groups
+	 * @return the strongest adherents with their average rank
+	 */
+	Adherents strongestAdherents(GroupSearch search) {
+		AdherentsTally tally = AdherentsTally.get();
+		tally.count(this, search);
 
+		return new Adherents(tally.getMainGroup(), tally.getMainRank());
+	}
+	
+	/**
+	 * Moves the user to the group of adherents
+	 * @param mainAdherents the strongest adherents
+	 * @return indication was to change the group or not
+	 */
+	boolean moveTo(Adherents mainAdherents) {
+		return moveTo(mainAdherents.getGroup(), mainAdherents.getRank());
+	}
+	
+	/**
+	 * Moves the user to the group
+	 * @param mainGroup the strongest group
+	 * @param mainRank average rank of its adherents
+	 * @return indication was to change the group or not
+	 */
+	private boolean moveTo(Group mainGroup, double mainRank) {
 		// Assign users to a group only if it differs from the current of his
 		// group.
-		if (!this.group.equals(mainAdherents.getGroup())) {
+		if (!this.group.equals(mainGroup)) {
+			if (mainGroup.equals(previousGroup)) {
+				flips++;
+			}
+			previousGroup = this.group;
 			this.group.deleteLink(this);
-			this.group = mainAdherents.getGroup();
-			this.rank = mainAdherents.getRank();
+			this.group = mainGroup;
+			this.rank = mainRank;
 			this.group.addLink(this);
 			
 			return true;
@@ -144,6 +175,21 @@ public class Link implements Comparable<Link> {
 		return this.follower.toString();
 	}
 	
+	/* Each user has only one link, therefore links are equal 
+	 * if they connect the same follower. */
+	public boolean equals(Object obj) {
+		if (obj instanceof Link) {
+			Link l = (Link) (obj);
+			return l.getFollower().equals(this.follower);
+		}
+		
+		return false;
+	}
+	
+	public int hashCode() {
+		return follower.hashCode();
+	}
+	
 	@Override
 	public int compareTo(Link o) {
 		if (this.getRank() < o.getRank()) {
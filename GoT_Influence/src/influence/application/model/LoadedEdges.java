@@ -0,0 +1,100 @@
+package influence.application.model;
+
+import java.util.Arrays;
+
+/**
+ * Table of the loaded edges by their keys for the aggregated loading.
+ * The keys are kept in the primitive array of the open addressing table,
+ * so the table costs much less than the map of boxed keys.
+ * It is only the index to find the edge of the same interaction,
+ * therefore it can be cleared at any moment.
+ * @author Muidinov Aider
+ *
+ */
+class LoadedEdges {
+	/** key of edge in each slot, -1 for the empty slot */
+	private long[] keys;
+
+	private Edge[] edges;
+
+	/** amount of edges */
+	private int size;
+
+	LoadedEdges() {
+		allocate(16);
+	}
+
+	/**
+	 * Finds the edge by its key
+	 * @param key key of edge, it is not negative
+	 * @return edge or null
+	 */
+	Edge get(long key) {
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+
+		while (keys[slot] != -1) {
+			if (keys[slot] == key) return edges[slot];
+			slot = (slot + 1) & mask;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Adds the edge, which is not in the table yet
+	 * @param key key of edge, it is not negative
+	 * @param edge edge
+	 */
+	void put(long key, Edge edge) {
+		if ((size + 1) * 2 > keys.length) {
+			grow();
+		}
+		place(key, edge);
+		size++;
+	}
+
+	/**
+	 * Removes all edges, the table becomes small again
+	 */
+	void clear() {
+		if (size > 0) allocate(16);
+		size = 0;
+	}
+
+	private void place(long key, Edge edge) {
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != -1) {
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		edges[slot] = edge;
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, -1);
+		edges = new Edge[capacity];
+	}
+
+	/**
+	 * Doubles the table and places all edges again
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		Edge[] oldEdges = edges;
+
+		allocate(keys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != -1) {
+				place(oldKeys[i], oldEdges[i]);
+			}
+		}
+	}
+}
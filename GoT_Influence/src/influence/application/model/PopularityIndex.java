@@ -0,0 +1,121 @@
+package influence.application.model;
+
+import java.util.Arrays;
+
+/**
+ * Index of the users with positive popularity for the search of opinion leaders.
+ * The users are sorted once by popularity, the most popular is the first,
+ * and the sums of popularity of the first users are kept in the primitive array.
+ * Then the amount of opinion leaders for any percent is found by the binary search
+ * instead of filling the priority queue with all users again.
+ * The users are given by their keys (the symbols of the graph), the users with
+ * equal popularity are in the order of their ordinals, which is the order of ID.
+ * The place of popularity and the ordinal of each user are packed into one long,
+ * so the users are sorted as the primitive array without the comparator.
+ * The index must be built again, when the ranks of vertices are changed.
+ * @author Muidinov Aider
+ *
+ */
+class PopularityIndex {
+
+	/** keys of users sorted by popularity */
+	private final int[] users;
+
+	/** prefixes[i] is the popularity of the first i users */
+	private final double[] prefixes;
+
+	/** total popularity of all users */
+	private final double totalPopularity;
+
+	/**
+	 * Builds the index
+	 * @param popularity popularity of each user by his key,
+	 * the total popularity is summed in the order of keys
+	 * @param ordinals ordinal of each user by his key, the ordinals are the numbers
+	 * from 0 to the amount of users, each user has his own
+	 */
+	PopularityIndex(double[] popularity, int[] ordinals) {
+		int[] keys = new int[popularity.length];
+		double[] values = new double[popularity.length];
+		int amount = 0;
+		double total = 0.00;
+		for (int key = 0; key < popularity.length; key++) {
+			keys[ordinals[key]] = key;
+			if (popularity[key] > 0.00) {
+				values[amount++] = popularity[key];
+				total += popularity[key];
+			}
+		}
+
+		// the distinct values of popularity in the ascending order
+		Arrays.sort(values, 0, amount);
+		int distinct = 0;
+		for (int i = 0; i < amount; i++) {
+			if (distinct == 0 || values[i] != values[distinct - 1]) {
+				values[distinct++] = values[i];
+			}
+		}
+
+		// the most popular value has the place 0, the ordinal is in the lower bits
+		long[] packed = new long[amount];
+		int i = 0;
+		for (int key = 0; key < popularity.length; key++) {
+			if (popularity[key] > 0.00) {
+				long place = distinct - 1 - Arrays.binarySearch(values, 0, distinct, popularity[key]);
+				packed[i++] = place << 32 | ordinals[key];
+			}
+		}
+		Arrays.sort(packed);
+
+		this.users = new int[amount];
+		this.prefixes = new double[amount + 1];
+		for (i = 0; i < amount; i++) {
+			users[i] = keys[(int) packed[i]];
+			prefixes[i+1] = prefixes[i] + popularity[users[i]];
+		}
+		this.totalPopularity = total;
+	}
+
+	/**
+	 * Counts the opinion leaders. The most popular users are taken one by one
+	 * while the popularity of the taken users does not exceed the percent
+	 * of total popularity, and the user who exceeds it is taken too.
+	 * @param percent percent of total popularity
+	 * @return amount of opinion leaders
+	 */
+	int amount(double percent) {
+		double amountPopularity = percent*totalPopularity/100;
+		if (amountPopularity < 0) return 0;
+
+		// the amount of the first prefixes which do not exceed the popularity
+		int low = 0;
+		int high = users.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (prefixes[middle] <= amountPopularity) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Gets amount of the users with positive popularity
+	 * @return amount of users
+	 */
+	int size() {
+		return users.length;
+	}
+
+	/**
+	 * Gets the user by his place in the order of popularity
+	 * @param i place of user, the most popular is 0
+	 * @return key of user
+	 */
+	int get(int i) {
+		return users[i];
+	}
+}
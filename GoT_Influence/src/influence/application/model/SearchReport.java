@@ -0,0 +1,187 @@
+package influence.application.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Metrics of one search of groups. The search takes the vertices from the queue
+ * round by round: a round contains the vertices which were in the queue
+ * at its beginning. Besides of the counters, the report tells whether
+ * the search converged or was stopped.
+ * @author Muidinov Aider
+ *
+ */
+public class SearchReport {
+
+	/**
+	 * Result of the search
+	 */
+	public enum Status {
+		/** the queue is empty, no group can be changed */
+		CONVERGED,
+		/** the search was stopped by the limit of steps */
+		STEP_LIMIT,
+		/** some vertices flipped between the same two groups and were frozen */
+		OSCILLATION
+	}
+
+	private Status status;
+
+	/** amount of vertices taken from the queue */
+	private int amountSteps;
+
+	/** amount of changes of groups */
+	private int amountChanges;
+
+	/** amount of changes of groups in each round */
+	private List<Integer> roundChanges;
+
+	/** the largest length of the queue */
+	private int peakQueue;
+
+	/** time of each phase of the search in seconds */
+	private Map<String, Float> phases;
+
+	/** vertices frozen because of the oscillation */
+	private List<Vertex> oscillating;
+
+	public SearchReport() {
+		this.status = Status.CONVERGED;
+		this.amountSteps = 0;
+		this.amountChanges = 0;
+		this.roundChanges = new ArrayList<Integer>();
+		this.peakQueue = 0;
+		this.phases = new LinkedHashMap<String, Float>();
+		this.oscillating = new ArrayList<Vertex>();
+	}
+
+	/**
+	 * Gets the result of the search
+	 * @return status
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Gets the amount of vertices taken from the queue
+	 * @return amount of steps
+	 */
+	public int getAmountSteps() {
+		return amountSteps;
+	}
+
+	/**
+	 * Gets the amount of changes of groups
+	 * @return amount of changes
+	 */
+	public int getAmountChanges() {
+		return amountChanges;
+	}
+
+	/**
+	 * Gets the amount of rounds
+	 * @return amount of rounds
+	 */
+	public int getAmountRounds() {
+		return roundChanges.size();
+	}
+
+	/**
+	 * Gets the amount of changes of groups in each round
+	 * @return changes per round
+	 */
+	public List<Integer> getRoundChanges() {
+		return roundChanges;
+	}
+
+	/**
+	 * Gets the largest length of the queue
+	 * @return peak length of the queue
+	 */
+	public int getPeakQueue() {
+		return peakQueue;
+	}
+
+	/**
+	 * Gets the time of each phase of the search
+	 * @return seconds by the name of phase
+	 */
+	public Map<String, Float> getPhases() {
+		return phases;
+	}
+
+	/**
+	 * Gets the vertices frozen because of the oscillation
+	 * @return oscillating vertices
+	 */
+	public List<Vertex> getOscillating() {
+		return oscillating;
+	}
+
+	/**
+	 * Checks whether the search converged
+	 * @return true if no group can be changed any more
+	 */
+	public boolean isConverged() {
+		return status == Status.CONVERGED;
+	}
+
+	void addStep() {
+		amountSteps++;
+	}
+
+	void addRound(int changes) {
+		roundChanges.add(changes);
+		amountChanges += changes;
+	}
+
+	void updateQueue(int length) {
+		peakQueue = Math.max(peakQueue, length);
+	}
+
+	void addPhase(String name, Float sec) {
+		phases.put(name, sec);
+	}
+
+	void addOscillating(Vertex v) {
+		oscillating.add(v);
+		if (status == Status.CONVERGED) {
+			status = Status.OSCILLATION;
+		}
+	}
+
+	void stop() {
+		status = Status.STEP_LIMIT;
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("search ").append(status).append(": ")
+			.append(amountSteps).append(" steps, ")
+			.append(amountChanges).append(" changes in ")
+			.append(roundChanges.size()).append(" rounds, peak queue ")
+			.append(peakQueue);
+
+		for (Map.Entry<String, Float> phase : phases.entrySet()) {
+			sb.append("\n   ").append(phase.getKey()).append(": ")
+				.append(phase.getValue()).append(" sec.");
+		}
+		if (!roundChanges.isEmpty()) {
+			sb.append("\n   changes per round: ").append(roundChanges);
+		}
+		if (!oscillating.isEmpty()) {
+			sb.append("\n   oscillating vertices (").append(oscillating.size()).append("):");
+			for (int i = 0; i < Math.min(oscillating.size(), 10); i++) {
+				sb.append(i == 0 ? " " : ", ").append(oscillating.get(i).getId());
+			}
+			if (oscillating.size() > 10) {
+				sb.append(" ...");
+			}
+		}
+
+		return sb.toString();
+	}
+}
@@ -6,6 +6,9 @@ package influence.application.model;
  *
  */
 public class SimpleTimer {
+	/** listener of the steps started in the current thread */
+	private static final ThreadLocal<Listener> LISTENER = new ThreadLocal<Listener>();
+	
 	private Long start;
 	private Long end;
 	private Long result;
@@ -19,6 +22,11 @@ public class SimpleTimer {
 		this.start = System.currentTimeMillis();
 		if (message != null) {
 			System.out.print(message);
+			
+			Listener listener = LISTENER.get();
+			if (listener != null) {
+				listener.started(message.trim());
+			}
 		}
 	}
 	
@@ -35,4 +43,28 @@ public class SimpleTimer {
 		return res;
 	}
 	
+	/**
+	 * Sets the listener of the steps, which are started by the timers of the current thread.
+	 * So the long work in the background reports its progress.
+	 * @param listener listener or null to remove it
+	 */
+	public static void setListener(Listener listener) {
+		if (listener == null) {
+			LISTENER.remove();
+		} else {
+			LISTENER.set(listener);
+		}
+	}
+	
+	/**
+	 * Listener of the started steps
+	 */
+	public interface Listener {
+		/**
+		 * The step is started
+		 * @param message message of the step
+		 */
+		void started(String message);
+	}
+	
 }
@@ -0,0 +1,93 @@
+package influence.application.model;
+
+/**
+ * Result of the search of groups for one value of the reduction of influence.
+ * @author Muidinov Aider
+ *
+ */
+public class SweepPoint {
+	private double reductionInfluence;
+	private SearchReport.Status status;
+	private int amountGroups;
+	private int largestGroup;
+	/** amount of vertices taken from the queue of the search until the groups stopped changing */
+	private int amountSteps;
+	private int amountChanges;
+	private float secResult;
+
+	/**
+	 * The main constructor
+	 * @param search finished search of groups
+	 * @param secResult time of the search in seconds
+	 */
+	public SweepPoint(GroupSearch search, float secResult) {
+		this.reductionInfluence = search.getReductionInfluence();
+		this.status = search.getReport().getStatus();
+		this.amountGroups = search.getGroups().size();
+		this.largestGroup = search.getLargestGroup();
+		this.amountSteps = search.getAmountSteps();
+		this.amountChanges = search.getAmountChanges();
+		this.secResult = secResult;
+	}
+
+	/**
+	 * Gets the reduction of influence
+	 * @return reduction of influence
+	 */
+	public double getReductionInfluence() {
+		return reductionInfluence;
+	}
+
+	/**
+	 * Gets the result of the search
+	 * @return status of the search
+	 */
+	public SearchReport.Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Gets the amount of groups
+	 * @return amount of groups
+	 */
+	public int getAmountGroups() {
+		return amountGroups;
+	}
+
+	/**
+	 * Gets the size of the largest group
+	 * @return size of the largest group
+	 */
+	public int getLargestGroup() {
+		return largestGroup;
+	}
+
+	/**
+	 * Gets the amount of steps of the search
+	 * @return amount of steps
+	 */
+	public int getAmountSteps() {
+		return amountSteps;
+	}
+
+	/**
+	 * Gets the amount of changes of groups
+	 * @return amount of changes
+	 */
+	public int getAmountChanges() {
+		return amountChanges;
+	}
+
+	/**
+	 * Gets the time of the search
+	 * @return time in seconds
+	 */
+	public float getSecResult() {
+		return secResult;
+	}
+
+	public String toString() {
+		return "influence "+reductionInfluence+": "+amountGroups+" groups, the largest "+largestGroup
+				+", "+amountSteps+" steps, "+amountChanges+" changes, "+status+" ("+secResult+" sec.)";
+	}
+}
@@ -0,0 +1,431 @@
+package influence.application.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Table of the names of users. Each name is stored only once as UTF-8 bytes
+ * in one array and gets the number (symbol) in the order of addition.
+ * The graph keys its vertices and edges by the symbols, and the strings
+ * of names are created only for the export and the display.
+ * The names are found and compared without creating the strings:
+ * the hash of symbol is the hash code of the name string,
+ * and the order of symbols is the order of strings.
+ * The names read from a file in UTF-8 are added directly from its bytes.
+ * @author Muidinov Aider
+ *
+ */
+public class SymbolTable {
+
+	/** initial capacity of the table */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/** bytes of all names one after another */
+	private byte[] bytes;
+	private int amountBytes;
+
+	// the position, the length and the hash code of each name by its symbol
+	private int[] offsets;
+	private int[] lengths;
+	private int[] hashes;
+	private int size;
+
+	/** open addressing hash table of symbols, the empty slot is -1 */
+	private int[] slots;
+
+	/** initial amount of names */
+	private int capacity;
+
+	public SymbolTable() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates the table for the given amount of names, it grows when it is needed
+	 * @param capacity initial amount of names
+	 */
+	public SymbolTable(int capacity) {
+		this.capacity = Math.max(capacity, 1);
+		clear();
+	}
+
+	/**
+	 * Removes all names
+	 */
+	public void clear() {
+		this.bytes = new byte[capacity * 16];
+		this.amountBytes = 0;
+		this.offsets = new int[capacity];
+		this.lengths = new int[capacity];
+		this.hashes = new int[capacity];
+		this.size = 0;
+		this.slots = new int[Integer.highestOneBit(capacity) * 4];
+		Arrays.fill(this.slots, -1);
+	}
+
+	/**
+	 * Gets the amount of names
+	 * @return amount of names
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the amount of bytes of all names
+	 * @return amount of bytes
+	 */
+	public int getAmountBytes() {
+		return amountBytes;
+	}
+
+	/**
+	 * Creates the string of the name
+	 * @param symbol symbol of name
+	 * @return name
+	 */
+	public String name(int symbol) {
+		return new String(bytes, offsets[symbol], lengths[symbol], StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the hash code of the name, it is equal to the hash code of its string
+	 * @param symbol symbol of name
+	 * @return hash code
+	 */
+	public int hash(int symbol) {
+		return hashes[symbol];
+	}
+
+	/**
+	 * Finds the symbol of the name
+	 * @param name name
+	 * @return symbol or -1 if there is no such name
+	 */
+	public int find(String name) {
+		int hash = name.hashCode();
+		int mask = slots.length - 1;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+
+		while (slots[slot] != -1) {
+			int symbol = slots[slot];
+			if (hashes[symbol] == hash && equalName(symbol, name)) {
+				return symbol;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Adds the name, if it is not added yet
+	 * @param name name
+	 * @return symbol of name
+	 */
+	public int intern(String name) {
+		int symbol = find(name);
+		if (symbol >= 0) return symbol;
+
+		byte[] b = name.getBytes(StandardCharsets.UTF_8);
+		ensureCapacity(b.length);
+		System.arraycopy(b, 0, bytes, amountBytes, b.length);
+
+		return add(b.length, name.hashCode());
+	}
+
+	/**
+	 * Adds the name given by the bytes of a file, if it is not added yet.
+	 * The name in UTF-8 or the ASCII name in US-ASCII and ISO-8859-1 is found
+	 * and copied without creating the string, other names are decoded as String does it.
+	 * @param buffer bytes of file
+	 * @param start the first byte of name
+	 * @param end the byte after the last byte of name
+	 * @param charset charset of the file
+	 * @return symbol of name
+	 */
+	public int intern(ByteBuffer buffer, int start, int end, Charset charset) {
+		long hash = -1;
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			hash = hashUtf8(buffer, start, end, true);
+		} else if (StandardCharsets.US_ASCII.equals(charset) || StandardCharsets.ISO_8859_1.equals(charset)) {
+			hash = hashUtf8(buffer, start, end, false);
+		}
+		if (hash < 0) {
+			byte[] b = new byte[end - start];
+			for (int i = 0; i < b.length; i++) {
+				b[i] = buffer.get(start + i);
+			}
+			return intern(new String(b, charset));
+		}
+
+		int mask = slots.length - 1;
+		int slot = ((int) hash ^ ((int) hash >>> 16)) & mask;
+		while (slots[slot] != -1) {
+			int symbol = slots[slot];
+			if (hashes[symbol] == (int) hash && equalBytes(symbol, buffer, start, end)) {
+				return symbol;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		// the valid UTF-8 bytes are the same as the bytes of the decoded string
+		int length = end - start;
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			bytes[amountBytes + i] = buffer.get(start + i);
+		}
+
+		return add(length, (int) hash);
+	}
+
+	/**
+	 * Checks whether the name is empty
+	 * @param symbol symbol of name
+	 * @return true if the name has no chars
+	 */
+	public boolean isEmpty(int symbol) {
+		return lengths[symbol] == 0;
+	}
+
+	/**
+	 * Registers the name, whose bytes are already copied after all names
+	 * @param length amount of bytes of name
+	 * @param hash hash code of name
+	 * @return symbol of name
+	 */
+	private int add(int length, int hash) {
+		int symbol = size++;
+		offsets[symbol] = amountBytes;
+		lengths[symbol] = length;
+		hashes[symbol] = hash;
+		amountBytes += length;
+		place(symbol);
+
+		if (size * 2 > slots.length) rehash();
+
+		return symbol;
+	}
+
+	/**
+	 * Calculates the hash code of the string from its UTF-8 bytes
+	 * @param buffer bytes of file
+	 * @param start the first byte
+	 * @param end the byte after the last byte
+	 * @param multiByte false if only ASCII bytes are allowed
+	 * @return hash code as unsigned int or -1 if the bytes are not valid UTF-8
+	 */
+	private static long hashUtf8(ByteBuffer buffer, int start, int end, boolean multiByte) {
+		int hash = 0;
+		int i = start;
+
+		while (i < end) {
+			int b = buffer.get(i++);
+			if (b >= 0) {
+				// ASCII
+				hash = 31 * hash + b;
+				continue;
+			}
+			if (!multiByte) return -1;
+
+			int length;
+			int c;
+			int min;
+			if ((b & 0xE0) == 0xC0) {
+				length = 1;
+				c = b & 0x1F;
+				min = 0x80;
+			} else if ((b & 0xF0) == 0xE0) {
+				length = 2;
+				c = b & 0x0F;
+				min = 0x800;
+			} else if ((b & 0xF8) == 0xF0) {
+				length = 3;
+				c = b & 0x07;
+				min = 0x10000;
+			} else {
+				return -1;
+			}
+			if (i + length > end) return -1;
+
+			for (int k = 0; k < length; k++) {
+				int next = buffer.get(i++);
+				if ((next & 0xC0) != 0x80) return -1;
+				c = (c << 6) | (next & 0x3F);
+			}
+			// overlong forms, surrogates and too large code points are replaced by the decoder
+			if (c < min || c > Character.MAX_CODE_POINT || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)) {
+				return -1;
+			}
+
+			if (c < 0x10000) {
+				hash = 31 * hash + c;
+			} else {
+				hash = 31 * hash + Character.highSurrogate(c);
+				hash = 31 * hash + Character.lowSurrogate(c);
+			}
+		}
+
+		return hash & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * Compares the name with the bytes of a file
+	 * @param symbol symbol of name
+	 * @param buffer bytes of file
+	 * @param start the first byte
+	 * @param end the byte after the last byte
+	 * @return true if the bytes are equal
+	 */
+	private boolean equalBytes(int symbol, ByteBuffer buffer, int start, int end) {
+		if (lengths[symbol] != end - start) return false;
+
+		int offset = offsets[symbol];
+		for (int i = start; i < end; i++) {
+			if (bytes[offset++] != buffer.get(i)) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Compares two names in the order of their strings
+	 * @param a symbol of the first name
+	 * @param b symbol of the second name
+	 * @return negative, zero or positive as for String.compareTo
+	 */
+	public int compare(int a, int b) {
+		if (a == b) return 0;
+
+		int i = offsets[a], endA = i + lengths[a];
+		int j = offsets[b], endB = j + lengths[b];
+
+		// the same bytes give the same chars, so the first different byte is searched
+		while (i < endA && j < endB && bytes[i] == bytes[j]) {
+			i++;
+			j++;
+		}
+		if (i == endA || j == endB) {
+			return (endA - i) - (endB - j);
+		}
+		// ASCII bytes are the chars themselves
+		if (bytes[i] >= 0 && bytes[j] >= 0) {
+			return bytes[i] - bytes[j];
+		}
+
+		// multi-byte chars are compared by their UTF-16 units, from the start of the char
+		while (i > offsets[a] && (bytes[i] & 0xC0) == 0x80) {
+			i--;
+			j--;
+		}
+		String restA = new String(bytes, i, endA - i, StandardCharsets.UTF_8);
+		String restB = new String(bytes, j, endB - j, StandardCharsets.UTF_8);
+
+		return restA.compareTo(restB);
+	}
+
+	/**
+	 * Compares the name with the string without decoding it.
+	 * The unpaired surrogate of the string is stored as '?', as UTF-8 encoder does it.
+	 * @param symbol symbol of name
+	 * @param name string
+	 * @return true if the name is equal to the string
+	 */
+	private boolean equalName(int symbol, String name) {
+		int i = offsets[symbol];
+		int end = i + lengths[symbol];
+		int n = name.length();
+		int k = 0;
+
+		while (i < end && k < n) {
+			char ch = name.charAt(k);
+			if (ch < 0x80) {
+				// ASCII
+				if (bytes[i] != ch) return false;
+				i++;
+				k++;
+				continue;
+			}
+
+			int c = name.codePointAt(k);
+			k += Character.charCount(c);
+			if (Character.isSurrogate(ch) && Character.charCount(c) == 1) {
+				if (bytes[i] != '?') return false;
+				i++;
+				continue;
+			}
+			int length = c < 0x800 ? 2 : (c < 0x10000 ? 3 : 4);
+			if (i + length > end || !equalChar(i, length, c)) return false;
+			i += length;
+		}
+
+		return i == end && k == n;
+	}
+
+	/**
+	 * Compares the UTF-8 bytes of one char with the code point
+	 * @param i position of the first byte
+	 * @param length amount of bytes of the char
+	 * @param c code point
+	 * @return true if the bytes encode the code point
+	 */
+	private boolean equalChar(int i, int length, int c) {
+		switch (length) {
+			case 2:
+				return bytes[i] == (byte) (0xC0 | (c >> 6))
+						&& bytes[i + 1] == (byte) (0x80 | (c & 0x3F));
+			case 3:
+				return bytes[i] == (byte) (0xE0 | (c >> 12))
+						&& bytes[i + 1] == (byte) (0x80 | ((c >> 6) & 0x3F))
+						&& bytes[i + 2] == (byte) (0x80 | (c & 0x3F));
+			default:
+				return bytes[i] == (byte) (0xF0 | (c >> 18))
+						&& bytes[i + 1] == (byte) (0x80 | ((c >> 12) & 0x3F))
+						&& bytes[i + 2] == (byte) (0x80 | ((c >> 6) & 0x3F))
+						&& bytes[i + 3] == (byte) (0x80 | (c & 0x3F));
+		}
+	}
+
+	/**
+	 * Places the symbol in the hash table
+	 * @param symbol symbol of name
+	 */
+	private void place(int symbol) {
+		int mask = slots.length - 1;
+		int slot = (hashes[symbol] ^ (hashes[symbol] >>> 16)) & mask;
+		while (slots[slot] != -1) {
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = symbol;
+	}
+
+	/**
+	 * Increases the arrays for the new name
+	 * @param length length of the new name
+	 */
+	private void ensureCapacity(int length) {
+		if (amountBytes + length > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, amountBytes + length));
+		}
+
+		if (size == offsets.length) {
+			offsets = Arrays.copyOf(offsets, size * 2);
+			lengths = Arrays.copyOf(lengths, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+	}
+
+	/**
+	 * Doubles the hash table and places all names again
+	 */
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		Arrays.fill(slots, -1);
+
+		for (int symbol = 0; symbol < size; symbol++) {
+			place(symbol);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package influence.application.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * List of types of links. The loaded edges are Likes and Comments, the auxiliary edges 
+ * are Feedbacks and Gratitudes, and the merged edges are General.
+ * @author Muidinov Aider
+ *
+ */
+public enum Type {
+	LIKE(1.00, 1.0),
+	COMMENT(2.00, 2.0),
+	FEEDBACK(1.00, 0.0),
+	GRATITUDE(0.5, 0.0),
+	GENERAL(0.00, 0.0);
+	
+	/** the initial rank of the edge of this type */
+	private final double rank;
+	
+	/** popularity points, which gives the edge of this type */
+	private final double pointsPopularity;
+	
+	/** position of the type in the order of names, the edges of one direction are merged in this order */
+	private int order;
+	
+	static {
+		Type[] types = values();
+		Arrays.sort(types, new Comparator<Type>() {
+
+			@Override
+			public int compare(Type t1, Type t2) {
+				return t1.name().compareTo(t2.name());
+			}
+			
+		});
+		for (int i = 0; i < types.length; i++) {
+			types[i].order = i;
+		}
+	}
+	
+	private Type(double rank, double pointsPopularity) {
+		this.rank = rank;
+		this.pointsPopularity = pointsPopularity;
+	}
+	
+	/**
+	 * Get the initial rank of the edge of this type
+	 * @return initial rank
+	 */
+	double getRank() {
+		return rank;
+	}
+	
+	/**
+	 * Get the popularity points of the edge of this type
+	 * @return popularity points
+	 */
+	double getPointsPopularity() {
+		return pointsPopularity;
+	}
+	
+	/**
+	 * Get the position of the type in the order of names
+	 * @return position of the type
+	 */
+	int getOrder() {
+		return order;
+	}
+}
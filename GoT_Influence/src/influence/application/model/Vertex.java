@@ -13,37 +13,134 @@ public class Vertex implements Comparable<Vertex> {
 	/**	user rank coefficient influence on the increase in the ranks of other users. */
 	public static final double RANK_FACTOR = 0.1;
 	
+	/** table of names of the graph */
+	private SymbolTable names;
+	/** number of the name of vertex in the table of names */
+	private int symbol;
+	/** ID created from the table of names, when it is asked for the first time */
 	private String id;
+	/** number of vertex in the graph, vertices are numbered in the order of their ID */
+	private int ordinal;
 	/** basic rank which is calculated without taking into account the followers of rank */
-	private Double baseRank;
+	private double baseRank;
 	/** full rank which is calculated taking into account the rank of followers */
-	private Double rank;
+	private double rank;
 	/** basic popularity which is calculated without taking into account the followers of popularity */
-	private Double basePopularity;
+	private double basePopularity;
 	/** popularity which is calculated taking into account the popularity of followers */
-	private Double popularity;
+	private double popularity;
 	
-	/** link users with group */
-	private Link link;
-	
-	/** the default constructor */
+	/** 
+	 * Creates a vertex, which is not the part of the graph.
+	 * It keeps its name in its own table.
+	 * @param id ID of vertex
+	 */
 	public Vertex(String id) {
-		this.id = id;
+		this(new SymbolTable(1), 0);
+		this.symbol = names.intern(id);
+	}
+
+	/**
+	 * Creates a vertex of the graph
+	 * @param names table of names of the graph
+	 * @param symbol symbol of ID of vertex in the table
+	 */
+	Vertex(SymbolTable names, int symbol) {
+		this.names = names;
+		this.symbol = symbol;
 		this.baseRank = 0.00;
 		this.rank = 0.00;
 		this.popularity = 0.0;
 		this.basePopularity = 0.0;
-		this.link = null;
 	}
 
 	/**
-	 * gets value of ID
+	 * Creates a vertex of the graph with the already calculated ranks
+	 * @param names table of names of the graph
+	 * @param symbol symbol of ID of vertex in the table
+	 * @param baseRank basic rank
+	 * @param rank full rank
+	 * @param basePopularity basic popularity
+	 * @param popularity full popularity
+	 */
+	Vertex(SymbolTable names, int symbol, double baseRank, double rank, double basePopularity, double popularity) {
+		this(names, symbol);
+		this.baseRank = baseRank;
+		this.rank = rank;
+		this.basePopularity = basePopularity;
+		this.popularity = popularity;
+	}
+
+	/**
+	 * gets value of ID. The string is created from the table of names only once,
+	 * when it is displayed or exported, the graph itself uses the symbol.
 	 * @return ID
 	 */
 	public String getId() {
+		if (id == null) {
+			id = names.name(symbol);
+		}
 		return id;
 	}
 	
+	/**
+	 * gets the table of names, which keeps ID
+	 * @return table of names
+	 */
+	SymbolTable getNames() {
+		return names;
+	}
+	
+	/**
+	 * gets the symbol of ID in the table of names
+	 * @return symbol
+	 */
+	int getSymbol() {
+		return symbol;
+	}
+	
+	/**
+	 * Compares ID of vertices as strings without creating them
+	 * @param v other vertex
+	 * @return negative, zero or positive as for String.compareTo
+	 */
+	int compareId(Vertex v) {
+		if (names == v.names) {
+			return names.compare(symbol, v.symbol);
+		}
+		return getId().compareTo(v.getId());
+	}
+	
+	/**
+	 * gets value of ordinal
+	 * @return ordinal
+	 */
+	int getOrdinal() {
+		return ordinal;
+	}
+	
+	/**
+	 * sets value of ordinal
+	 * @param ordinal
+	 */
+	void setOrdinal(int ordinal) {
+		this.ordinal = ordinal;
+	}
+	
+	/**
+	 * Sets the ranks calculated before, when the vertex is restored from the snapshot
+	 * @param baseRank basic rank
+	 * @param rank full rank
+	 * @param basePopularity basic popularity
+	 * @param popularity full popularity
+	 */
+	void restoreRanks(double baseRank, double rank, double basePopularity, double popularity) {
+		this.baseRank = baseRank;
+		this.rank = rank;
+		this.basePopularity = basePopularity;
+		this.popularity = popularity;
+	}
+	
 	/**
 	 * gets value of baseRank
 	 * @return baseRank
@@ -76,41 +173,13 @@ public class Vertex implements Comparable<Vertex> {
 		return popularity;
 	}
 
-	/**
-	 * gets value of link
-	 * @return link
-	 */
-	public Link getLink() {
-		return link;
-	}
-
-	/**
-	 * Gets user connection to the group. It creates a new link is not specified
-	 * @param graph Current schedule. It is necessary to create a new link with the group.
-	 * @return link with group
-	 */
-	public Link findLink(FacebookGraph graph) {
-		if (this.link == null) {
-			this.link = new Link(this,graph);
-		}
-		
-		return link;
-	}
-	
-	/**
-	 * Deleting connection with the group
-	 */
-	public void removeLink() {
-		this.link = null;
-	}
-
 	/**
 	 * Calculates the base rank for vertex
 	 * @param edges incoming edges
 	 */
 	public void defineBaseRank(List<Edge> edges) {
-		Double r = 0.00;
-		Double p = 0.00;
+		double r = 0.00;
+		double p = 0.00;
 		
 		if (edges != null) {
 			for (Edge e : edges) {
@@ -128,8 +197,8 @@ public class Vertex implements Comparable<Vertex> {
 	 * @param edges incoming edges
 	 */
 	public void defineRank(List<Edge> edges) {
-		Double fullRank = 0.00;
-		Double fullPopularity = 0.00;
+		double fullRank = 0.00;
+		double fullPopularity = 0.00;
 		
 		if (edges != null) {
 			for (Edge e : edges) {
@@ -143,18 +212,26 @@ public class Vertex implements Comparable<Vertex> {
 	}
 	
 	public String toString() {
-		return id+"<rv "+this.rank+">";
+		return getId()+"<rv "+this.rank+">";
 	}
 	
 	public boolean equals(Object obj) {
 		if (obj instanceof Vertex) {
 			Vertex v = (Vertex)(obj);
-			return v.getId().equals(this.id);
+			if (v.names == this.names) {
+				return v.symbol == this.symbol;
+			}
+			return v.getId().equals(getId());
 		}
 		
 		return false;
 	}
 	
+	public int hashCode() {
+		// the hash code of ID string is kept by the table of names
+		return names.hash(symbol);
+	}
+	
 	// Code to implement Comparable
 	@Override
 	public int compareTo(Vertex o) {
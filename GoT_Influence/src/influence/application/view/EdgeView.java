@@ -34,12 +34,7 @@ public class EdgeView extends Line {
         startYProperty().bind( from.layoutYProperty());
         endXProperty().bind( to.layoutXProperty());
         endYProperty().bind( to.layoutYProperty());
-        
-        // tooltips (very slow)
-//        Tooltip tooltip = new Tooltip("from "+from.getVertex().getId()+" (pop: "+from.getVertex().getPopularity()+")"+
-//        		" --> "+to.getVertex().getId()+ " (pop: "+to.getVertex().getPopularity()+")");
-//		Tooltip.install(this, tooltip);
-        
+
 	}
 
 	/**
@@ -58,6 +53,16 @@ public class EdgeView extends Line {
 		return to;
 	}
 
+	/**
+	 * Sets the edge color, it is shown when the edge is not selected
+	 * @param color edge color
+	 */
+	public void setColorEdge(Color color) {
+		this.colorEdge = color;
+		
+		setSelected(selected);
+	}
+
 	/**
 	 * Gets the selected properties
 	 * @return selected properties
@@ -0,0 +1,598 @@
+package influence.application.view;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import influence.application.model.Group;
+import influence.application.model.Vertex;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Batched presentation of the large graph. Instead of one node of the scene
+ * for each group, vertex and edge, all of them are drawn on one canvas
+ * from the primitive arrays of coordinates. Elements of the same color
+ * are drawn in one pass, so the color of the context is changed
+ * only a few times for the whole graph.
+ * The elements look the same as {@link GroupView}, {@link VertexView} and {@link EdgeView}.
+ * @author Muidinov Aider
+ *
+ */
+public class GraphCanvas extends Canvas {
+
+	/** the largest amount of edges of the whole graph which are drawn one by one,
+	 * the edges of the larger graph are drawn as bundles between groups */
+	public static final int MAX_DETAILED_EDGES = 5000;
+
+	/** amount of levels of the width of bundles */
+	private static final int BUNDLE_LEVELS = 8;
+
+	// states of vertices, as the selection of VertexView changes them
+	private static final byte NORMAL = 0;
+	private static final byte SELECTED = 1;
+	private static final byte UNSELECTED = 2;
+
+	// groups by their indexes: models, centers, radii and colors
+	private Group[] groups;
+	private double[] groupX;
+	private double[] groupY;
+	private double[] groupRadius;
+	private Color[] groupColors;
+	private int amountGroups;
+
+	/** index of group by its leader */
+	private HashMap<Vertex,Integer> indexOfGroups;
+
+	// vertices by their indexes: models, groups, centers, radii and states of selection
+	private Vertex[] vertices;
+	private int[] vertexGroups;
+	private double[] vertexX;
+	private double[] vertexY;
+	private double[] vertexRadius;
+	private byte[] vertexStates;
+	private int amountVertices;
+
+	/* edges by the indexes of their vertices. After the finishing
+	 * the edges are sorted by the group of the starting vertex,
+	 * the edges of group g are from edgeOffsets[g] to edgeOffsets[g+1] */
+	private int[] edgeFrom;
+	private int[] edgeTo;
+	private int[] edgeOffsets;
+	private int amountEdges;
+	private Color edgeColor;
+
+	/* bundles of edges between two groups by their indexes: 
+	 * the groups, the smaller index is the first, and the amount of edges */
+	private int[] bundleFrom;
+	private int[] bundleTo;
+	private int[] bundleWeights;
+	private int amountBundles;
+
+	/** level of the width of each bundle */
+	private byte[] bundleLevels;
+
+	/** the edges are drawn as bundles, only the edges of the selected group are drawn one by one */
+	private boolean bundled;
+
+	/** the index of the selected group or -1 */
+	private int selected;
+
+	/** display mode of the elements */
+	private int mode;
+
+	/**
+	 * The main constructor
+	 */
+	public GraphCanvas() {
+		clear(0);
+	}
+
+	/**
+	 * Removes all elements
+	 * @param mode display mode of the new elements
+	 */
+	public void clear(int mode) {
+		this.mode = mode;
+		this.groups = new Group[16];
+		this.groupX = new double[16];
+		this.groupY = new double[16];
+		this.groupRadius = new double[16];
+		this.groupColors = new Color[16];
+		this.amountGroups = 0;
+		this.indexOfGroups = new HashMap<Vertex,Integer>();
+
+		this.vertices = new Vertex[16];
+		this.vertexGroups = new int[16];
+		this.vertexX = new double[16];
+		this.vertexY = new double[16];
+		this.vertexRadius = new double[16];
+		this.vertexStates = new byte[16];
+		this.amountVertices = 0;
+
+		this.edgeFrom = new int[16];
+		this.edgeTo = new int[16];
+		this.edgeOffsets = new int[1];
+		this.amountEdges = 0;
+		this.edgeColor = Color.TRANSPARENT;
+
+		this.bundleFrom = new int[0];
+		this.bundleTo = new int[0];
+		this.bundleWeights = new int[0];
+		this.amountBundles = 0;
+		this.bundleLevels = new byte[0];
+		this.bundled = false;
+
+		this.selected = -1;
+	}
+
+	/**
+	 * Adds the group
+	 * @param group group model
+	 * @return index of group
+	 */
+	public int addGroup(Group group) {
+		if (amountGroups == groups.length) {
+			int capacity = amountGroups * 2;
+			groups = Arrays.copyOf(groups, capacity);
+			groupX = Arrays.copyOf(groupX, capacity);
+			groupY = Arrays.copyOf(groupY, capacity);
+			groupRadius = Arrays.copyOf(groupRadius, capacity);
+			groupColors = Arrays.copyOf(groupColors, capacity);
+		}
+		groups[amountGroups] = group;
+		groupColors[amountGroups] = Color.TRANSPARENT;
+		indexOfGroups.put(group.getLeader(), amountGroups);
+
+		return amountGroups++;
+	}
+
+	/**
+	 * Adds the vertex. Its radius is defined as in VertexView.
+	 * @param vertex model of the vertex
+	 * @param group index of the group of vertex
+	 * @return index of vertex
+	 */
+	public int addVertex(Vertex vertex, int group) {
+		if (amountVertices == vertices.length) {
+			int capacity = amountVertices * 2;
+			vertices = Arrays.copyOf(vertices, capacity);
+			vertexGroups = Arrays.copyOf(vertexGroups, capacity);
+			vertexX = Arrays.copyOf(vertexX, capacity);
+			vertexY = Arrays.copyOf(vertexY, capacity);
+			vertexRadius = Arrays.copyOf(vertexRadius, capacity);
+			vertexStates = Arrays.copyOf(vertexStates, capacity);
+		}
+
+		// for leaders of groups larger radius
+		double radius = groups[group].getLeader().equals(vertex) ? 3.00 : 1.50;
+		// mode display vertices for groups only increases their radius
+		if (mode == 1) radius *= 2.00;
+
+		vertices[amountVertices] = vertex;
+		vertexGroups[amountVertices] = group;
+		vertexRadius[amountVertices] = radius;
+		vertexStates[amountVertices] = NORMAL;
+
+		return amountVertices++;
+	}
+
+	/**
+	 * Adds the edge between two vertices
+	 * @param from index of the starting vertex
+	 * @param to index of the finishing vertex
+	 */
+	public void addEdge(int from, int to) {
+		if (amountEdges == edgeFrom.length) {
+			edgeFrom = Arrays.copyOf(edgeFrom, amountEdges * 2);
+			edgeTo = Arrays.copyOf(edgeTo, amountEdges * 2);
+		}
+		edgeFrom[amountEdges] = from;
+		edgeTo[amountEdges] = to;
+		amountEdges++;
+	}
+
+	/**
+	 * Finishes the addition of elements. The edges are sorted
+	 * by the groups of their starting vertices. If there are too many edges
+	 * in the view of all groups, they are gathered in the bundles.
+	 * @param edgeColor color of edges
+	 */
+	public void finish(Color edgeColor) {
+		this.edgeColor = edgeColor;
+
+		// counting sort of edges by groups
+		edgeOffsets = new int[amountGroups + 1];
+		for (int e = 0; e < amountEdges; e++) {
+			edgeOffsets[vertexGroups[edgeFrom[e]] + 1]++;
+		}
+		for (int g = 0; g < amountGroups; g++) {
+			edgeOffsets[g+1] += edgeOffsets[g];
+		}
+
+		int[] positions = Arrays.copyOf(edgeOffsets, amountGroups);
+		int[] sortedFrom = new int[amountEdges];
+		int[] sortedTo = new int[amountEdges];
+		for (int e = 0; e < amountEdges; e++) {
+			int p = positions[vertexGroups[edgeFrom[e]]]++;
+			sortedFrom[p] = edgeFrom[e];
+			sortedTo[p] = edgeTo[e];
+		}
+		edgeFrom = sortedFrom;
+		edgeTo = sortedTo;
+
+		bundled = mode == 0 && amountEdges > MAX_DETAILED_EDGES;
+		if (bundled) {
+			bundleEdges();
+		}
+	}
+
+	/**
+	 * Gathers the edges between each two groups in one bundle, the direction 
+	 * of edges is not taken into account. The edges inside the group are not drawn,
+	 * the circle of the group shows them. The bundles are found by sorting 
+	 * the primitive keys of the pairs of groups.
+	 */
+	private void bundleEdges() {
+		long[] keys = new long[amountEdges];
+		int amountKeys = 0;
+		for (int e = 0; e < amountEdges; e++) {
+			int g1 = vertexGroups[edgeFrom[e]];
+			int g2 = vertexGroups[edgeTo[e]];
+			if (g1 == g2) continue;
+			keys[amountKeys++] = (long) Math.min(g1, g2) * amountGroups + Math.max(g1, g2);
+		}
+		Arrays.sort(keys, 0, amountKeys);
+
+		bundleFrom = new int[amountKeys];
+		bundleTo = new int[amountKeys];
+		bundleWeights = new int[amountKeys];
+		amountBundles = 0;
+		int maxWeight = 0;
+		for (int i = 0; i < amountKeys; i++) {
+			if (i > 0 && keys[i] == keys[i-1]) {
+				bundleWeights[amountBundles - 1]++;
+			} else {
+				bundleFrom[amountBundles] = (int) (keys[i] / amountGroups);
+				bundleTo[amountBundles] = (int) (keys[i] % amountGroups);
+				bundleWeights[amountBundles] = 1;
+				amountBundles++;
+			}
+			maxWeight = Math.max(maxWeight, bundleWeights[amountBundles - 1]);
+		}
+
+		// the level grows with the logarithm of the amount of edges
+		bundleLevels = new byte[amountBundles];
+		double maxLevel = Math.log1p(maxWeight);
+		for (int b = 0; b < amountBundles; b++) {
+			int level = (int) (Math.log1p(bundleWeights[b]) / maxLevel * BUNDLE_LEVELS);
+			bundleLevels[b] = (byte) Math.min(level, BUNDLE_LEVELS - 1);
+		}
+	}
+
+	/**
+	 * Gets the amount of groups
+	 * @return amount of groups
+	 */
+	public int getAmountGroups() {
+		return amountGroups;
+	}
+
+	/**
+	 * Gets the group model
+	 * @param g index of group
+	 * @return group
+	 */
+	public Group getGroup(int g) {
+		return groups[g];
+	}
+
+	/**
+	 * Sets the position, the size and the color of group.
+	 * In the mode of the selected group the group is transparent as in GroupView.
+	 * @param g index of group
+	 * @param x X coordinate of the center
+	 * @param y Y coordinate of the center
+	 * @param radius radius of the group
+	 * @param color color of the group
+	 */
+	public void setGroupView(int g, double x, double y, double radius, Color color) {
+		groupX[g] = x;
+		groupY[g] = y;
+		groupRadius[g] = radius;
+		groupColors[g] = mode == 1 ? Color.TRANSPARENT : color;
+	}
+
+	/**
+	 * Gets the X coordinate of the group center
+	 * @param g index of group
+	 * @return X coordinate
+	 */
+	public double getGroupX(int g) {
+		return groupX[g];
+	}
+
+	/**
+	 * Gets the Y coordinate of the group center
+	 * @param g index of group
+	 * @return Y coordinate
+	 */
+	public double getGroupY(int g) {
+		return groupY[g];
+	}
+
+	/**
+	 * Gets the radius of group
+	 * @param g index of group
+	 * @return radius
+	 */
+	public double getGroupRadius(int g) {
+		return groupRadius[g];
+	}
+
+	/**
+	 * Gets the amount of vertices
+	 * @return amount of vertices
+	 */
+	public int getAmountVertices() {
+		return amountVertices;
+	}
+
+	/**
+	 * Gets the vertex model
+	 * @param v index of vertex
+	 * @return vertex
+	 */
+	public Vertex getVertex(int v) {
+		return vertices[v];
+	}
+
+	/**
+	 * Gets the group of vertex
+	 * @param v index of vertex
+	 * @return index of group
+	 */
+	public int getVertexGroup(int v) {
+		return vertexGroups[v];
+	}
+
+	/**
+	 * Sets the position of vertex
+	 * @param v index of vertex
+	 * @param x X coordinate of the center
+	 * @param y Y coordinate of the center
+	 */
+	public void relocateVertex(int v, double x, double y) {
+		vertexX[v] = x;
+		vertexY[v] = y;
+	}
+
+	/**
+	 * Gets the X coordinate of the vertex center
+	 * @param v index of vertex
+	 * @return X coordinate
+	 */
+	public double getVertexX(int v) {
+		return vertexX[v];
+	}
+
+	/**
+	 * Gets the Y coordinate of the vertex center
+	 * @param v index of vertex
+	 * @return Y coordinate
+	 */
+	public double getVertexY(int v) {
+		return vertexY[v];
+	}
+
+	/**
+	 * Gets the radius of vertex
+	 * @param v index of vertex
+	 * @return radius
+	 */
+	public double getVertexRadius(int v) {
+		return vertexRadius[v];
+	}
+
+	/**
+	 * Gets the amount of edges
+	 * @return amount of edges
+	 */
+	public int getAmountEdges() {
+		return amountEdges;
+	}
+
+	/**
+	 * Gets the starting vertex of edge
+	 * @param e index of edge
+	 * @return index of vertex
+	 */
+	public int getEdgeFrom(int e) {
+		return edgeFrom[e];
+	}
+
+	/**
+	 * Gets the finishing vertex of edge
+	 * @param e index of edge
+	 * @return index of vertex
+	 */
+	public int getEdgeTo(int e) {
+		return edgeTo[e];
+	}
+
+	/**
+	 * It determines whether the edges are drawn as bundles between groups
+	 * @return true if the edges are bundled
+	 */
+	public boolean isBundled() {
+		return bundled;
+	}
+
+	/**
+	 * Gets the amount of bundles of edges
+	 * @return amount of bundles
+	 */
+	public int getAmountBundles() {
+		return amountBundles;
+	}
+
+	/**
+	 * Gets the first group of bundle
+	 * @param b index of bundle
+	 * @return index of group
+	 */
+	public int getBundleFrom(int b) {
+		return bundleFrom[b];
+	}
+
+	/**
+	 * Gets the second group of bundle
+	 * @param b index of bundle
+	 * @return index of group
+	 */
+	public int getBundleTo(int b) {
+		return bundleTo[b];
+	}
+
+	/**
+	 * Gets the amount of edges of bundle
+	 * @param b index of bundle
+	 * @return amount of edges
+	 */
+	public int getBundleWeight(int b) {
+		return bundleWeights[b];
+	}
+
+	/**
+	 * Selects the group, the selection of the previous group is cancelled.
+	 * The vertices of the previous group become pale, as in VertexView.
+	 * @param leader leader of group or null to cancel the selection
+	 */
+	public void selectGroup(Vertex leader) {
+		if (selected >= 0) {
+			setVertexStates(selected, UNSELECTED);
+			selected = -1;
+		}
+
+		Integer g = leader == null ? null : indexOfGroups.get(leader);
+		if (g != null) {
+			selected = g;
+			setVertexStates(selected, SELECTED);
+		}
+
+		draw();
+	}
+
+	/**
+	 * Changes the states of all vertices of the group
+	 * @param g index of group
+	 * @param state new state
+	 */
+	private void setVertexStates(int g, byte state) {
+		for (int v = 0; v < amountVertices; v++) {
+			if (vertexGroups[v] == g) vertexStates[v] = state;
+		}
+	}
+
+	/**
+	 * Draws all elements: groups, then vertices, then edges,
+	 * in the same order as the nodes of GraphView
+	 */
+	public void draw() {
+		GraphicsContext gc = getGraphicsContext2D();
+		gc.clearRect(0, 0, getWidth(), getHeight());
+
+		// groups, the selected group is more opaque
+		for (int g = 0; g < amountGroups; g++) {
+			Color c = groupColors[g];
+			if (g == selected && mode == 0) {
+				c = new Color(c.getRed(), c.getGreen(), c.getBlue(), 0.5);
+			}
+			if (c.getOpacity() == 0) continue;
+
+			gc.setFill(c);
+			double r = groupRadius[g];
+			gc.fillOval(groupX[g] - r, groupY[g] - r, r * 2.0, r * 2.0);
+		}
+
+		// vertices in three passes by their states
+		drawVertices(gc, NORMAL, mode == 1 ? new Color(0.0,0.0,0.0,0.8) : new Color(0.0,0.0,0.0,0.4));
+		drawVertices(gc, UNSELECTED, new Color(0.0,0.0,0.0,0.15));
+		if (selected >= 0) {
+			Color c = groupColors[selected];
+			drawVertices(gc, SELECTED, new Color(c.getRed(),c.getGreen(),c.getBlue(),0.9));
+		}
+
+		/* edges of the other groups in one pass, then the edges of the selected group.
+		 * Each edge is stroked separately, so the pale edges are summed as the lines of nodes */
+		gc.setLineWidth(1.0);
+		double opacity = edgeColor.getOpacity();
+		if (bundled) {
+			drawBundles(gc);
+
+			// the opacity of the edges of selected group depends on their number, as in EdgeViewFactory
+			if (selected >= 0) {
+				int amount = edgeOffsets[selected+1] - edgeOffsets[selected];
+				opacity = amount == 0 ? 1.0 : Math.min(1.0, 200.0/amount);
+			}
+		} else {
+			gc.setStroke(edgeColor);
+			for (int g = 0; g < amountGroups; g++) {
+				if (g != selected) drawEdges(gc, g);
+			}
+		}
+		if (selected >= 0) {
+			Color c = groupColors[selected];
+			gc.setLineWidth(1.0);
+			gc.setStroke(new Color(c.getRed(),c.getGreen(),c.getBlue(),opacity));
+			drawEdges(gc, selected);
+		}
+	}
+
+	/**
+	 * Draws the bundles between the centers of groups. The width and the opacity
+	 * of the bundle grow with the logarithm of its amount of edges. The bundles
+	 * are divided into a few levels, and each level is drawn in one pass.
+	 * @param gc context of the canvas
+	 */
+	private void drawBundles(GraphicsContext gc) {
+		for (int level = 0; level < BUNDLE_LEVELS; level++) {
+			double part = (double) (level + 1) / BUNDLE_LEVELS;
+			gc.setLineWidth(0.5 + 3.5 * part);
+			gc.setStroke(Color.gray(0.01, 0.1 + 0.6 * part));
+
+			for (int b = 0; b < amountBundles; b++) {
+				if (bundleLevels[b] == level) {
+					gc.strokeLine(groupX[bundleFrom[b]], groupY[bundleFrom[b]], groupX[bundleTo[b]], groupY[bundleTo[b]]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draws the vertices in the given state by one color
+	 * @param gc context of the canvas
+	 * @param state state of vertices
+	 * @param color color of vertices
+	 */
+	private void drawVertices(GraphicsContext gc, byte state, Color color) {
+		gc.setFill(color);
+		for (int v = 0; v < amountVertices; v++) {
+			if (vertexStates[v] == state) {
+				double r = vertexRadius[v];
+				gc.fillOval(vertexX[v] - r, vertexY[v] - r, r * 2.0, r * 2.0);
+			}
+		}
+	}
+
+	/**
+	 * Draws the edges of the group by the current color
+	 * @param gc context of the canvas
+	 * @param g index of group
+	 */
+	private void drawEdges(GraphicsContext gc, int g) {
+		for (int e = edgeOffsets[g]; e < edgeOffsets[g+1]; e++) {
+			gc.strokeLine(vertexX[edgeFrom[e]], vertexY[edgeFrom[e]], vertexX[edgeTo[e]], vertexY[edgeTo[e]]);
+		}
+	}
+}
@@ -2,13 +2,12 @@ package influence.application.view;
 
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
 
+import influence.application.model.EdgeVisitor;
 import influence.application.model.FacebookGraph;
 import influence.application.model.Group;
 import influence.application.model.Link;
@@ -16,6 +15,9 @@ import influence.application.model.SimpleTimer;
 import influence.application.model.Vertex;
 import influence.application.view.helpers.EdgeViewFactory;
 import influence.application.view.layout.GraphLayout;
+import influence.application.view.layout.SpatialGrid;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 
 /**
@@ -29,6 +31,13 @@ import javafx.scene.layout.Pane;
  */
 public class GraphView extends Pane {
 	
+	/** the largest amount of vertices which are shown by the nodes of the scene, 
+	 * the larger graph is drawn on the canvas */
+	public static final int MAX_NODE_VERTICES = 2000;
+	
+	/** the largest distance from the cursor to the vertex or the edge under it */
+	private static final double HOVER_DISTANCE = 2.0;
+	
 	/** access to the graph model */
 	private FacebookGraph graph;
 	
@@ -37,6 +46,31 @@ public class GraphView extends Pane {
 	private List<EdgeView> edges;
 	private HashMap<String,GroupView> groups;
 	
+	/** canvas of the large graph */
+	private GraphCanvas canvas;
+	
+	/** the graph is drawn on the canvas */
+	private boolean batched;
+	
+	/** the elements are being built, they are not shown and not indexed */
+	private volatile boolean updating;
+	
+	/* index of the laid-out groups, vertices and edges for hit-testing, 
+	 * the elements are numbered in their arrays. It is built after the layout */
+	private Group[] indexedGroups;
+	private SpatialGrid groupGrid;
+	private Vertex[] indexedVertices;
+	private SpatialGrid vertexGrid;
+	private int[] indexedFrom;
+	private int[] indexedTo;
+	private SpatialGrid edgeGrid;
+	
+	/** amount of edges of each bundle between groups, null if the edges are not bundled */
+	private int[] indexedWeights;
+	
+	/** the only tooltip of the element under the cursor, it is created at the first hover */
+	private Tooltip tooltip;
+	
 	// designed properties that are used in the calculations
 	private int maxSize;
 	private Double averageRadiusGroup;
@@ -57,7 +91,13 @@ public class GraphView extends Pane {
 		this.groups = new HashMap<>();
 		this.vertices = new LinkedList<>();
 		this.edges = new LinkedList<>();
+		this.canvas = new GraphCanvas();
 		this.viewSelectedGroup = false;
+		this.updating = false;
+		
+		// the element under the cursor is found by the index instead of the tooltip of each node
+		setOnMouseMoved(e -> showTooltip(e));
+		setOnMouseExited(e -> hideTooltip());
 	}
 	
 	/**
@@ -92,6 +132,22 @@ public class GraphView extends Pane {
 		return edges;
 	}
 
+	/**
+	 * Get the canvas of the large graph
+	 * @return canvas
+	 */
+	public GraphCanvas getCanvas() {
+		return canvas;
+	}
+
+	/**
+	 * It determines whether the graph is drawn on the canvas
+	 * @return true if the graph is drawn on the canvas
+	 */
+	public boolean isBatched() {
+		return batched;
+	}
+
 	/**
 	 * Get the maximum size
 	 * @return maximum size
@@ -198,17 +254,53 @@ public class GraphView extends Pane {
 		this.koefRemote = 1.00/maxSize;
 	}
 	
+	/**
+	 * It determines whether the elements are being built
+	 * @return true if the elements are not shown yet
+	 */
+	public boolean isUpdating() {
+		return updating;
+	}
+
 	/**
 	 * Adds the elements of the graph on the panel
 	 */
 	public void update() {
+		clearView();
+		buildView();
+		commitView();
+	}
+	
+	/**
+	 * Removes the old elements from the pane before the building of the new ones.
+	 * It is called in the application thread.
+	 */
+	public void clearView() {
+		updating = true;
+		getChildren().clear();
+		canvas.widthProperty().unbind();
+		canvas.heightProperty().unbind();
+		lastSelected = null;
+		clearIndex();
+		
+		// If the current resolution is not yet defined, then set it manually
+		if (getWidth() == 0 || getHeight() == 0) {
+			setWidth(598.0);
+			setHeight(598.0);
+		}
+	}
+	
+	/**
+	 * Builds the new elements of the graph. The elements are not added to the pane,
+	 * so they can be built and laid out in the background thread.
+	 */
+	public void buildView() {
 		SimpleTimer timer = new SimpleTimer();
 		
 		timer.start("   cleaning old data...");
 			groups.clear();
 			vertices.clear();
 			edges.clear();
-			getChildren().clear();
 		timer.finish("...done");
 		
 		timer.start("   preparing...");
@@ -229,13 +321,20 @@ public class GraphView extends Pane {
 			prepare(groupsValues);
 		timer.finish("...done");
 		
+		/* Mode which affects drawing the graph elements. 
+		 * If the selected group, the elements of the group should be allocated */
+		int mode = viewSelectedGroup ? 1 : 0;
+		
+		// the large graph is drawn on the canvas instead of the nodes
+		batched = getAmountSizeGroups(groupsValues) > MAX_NODE_VERTICES;
+		if (batched) {
+			updateCanvas(groupsValues, mode);
+			return;
+		}
+		
 		timer.start("   updating groups and vertices...");
 			// the vertex for connecting edges
-			HashMap<String, VertexView> connectionVertex = new HashMap<String, VertexView>();
-			
-			/* Mode which affects drawing the graph elements. 
-			 * If the selected group, the elements of the group should be allocated */
-			int mode = viewSelectedGroup ? 1 : 0;
+			final HashMap<Vertex, VertexView> connectionVertex = new HashMap<Vertex, VertexView>();
 			
 			for (Group g : groupsValues) {
 				
@@ -247,45 +346,280 @@ public class GraphView extends Pane {
 					Vertex v = l.getFollower();
 					VertexView vertexView = new VertexView(v, groupView, mode);
 					vertices.add(vertexView);
-					connectionVertex.put(v.getId(), vertexView);
+					connectionVertex.put(v, vertexView);
 					groupView.getVertices().add(vertexView);
 					
 				}
 			}
 		timer.finish("...done");
 		
+		timer.start("   updating edges...");
+			
+			/* Create a factory to create edges. Opacity edges will depend on their number, 
+			 * to avoid the full pane painting. */
+			final EdgeViewFactory edgeViewFactory = new EdgeViewFactory(mode);
+			
+			// the edges between the shown vertices are visited in the graph, without its copy
+			graph.visitEdges(connectionVertex.keySet(), new EdgeVisitor() {
+				
+				@Override
+				public void visit(Vertex v, Vertex e, double rank, double points) {
+					VertexView from = connectionVertex.get(v);
+					EdgeView edgeView = edgeViewFactory.addEdge(from, connectionVertex.get(e));
+					edges.add(edgeView);
+					from.getGroupView().getEdgesView().add(edgeView);
+				}
+				
+			});
+			edgeViewFactory.finish(edges);
+		timer.finish("...done");
+		
+	}
+	
+	/**
+	 * Adds the built elements to the pane. It is called in the application thread.
+	 */
+	public void commitView() {
+		SimpleTimer timer = new SimpleTimer();
+		
 		timer.start("   adding children...");
+		if (batched) {
+			// the canvas covers the pane and it is redrawn with it
+			canvas.widthProperty().bind(widthProperty());
+			canvas.heightProperty().bind(heightProperty());
+			canvas.widthProperty().addListener((observable, oldValue, newValue) -> canvas.draw());
+			canvas.heightProperty().addListener((observable, oldValue, newValue) -> canvas.draw());
+			getChildren().add(canvas);
+		} else {
 			getChildren().addAll(groups.values());
 			getChildren().addAll(vertices);
+			getChildren().addAll(edges);
+		}
 		timer.finish("...done");
 		
-		timer.start("   updating edges...");
+		updating = false;
+	}
+	
+	/**
+	 * Adds the elements of the graph on the canvas. 
+	 * Only the primitive arrays of the elements are filled, they are drawn after the layout.
+	 * @param groupsValues shown groups
+	 * @param mode display mode
+	 */
+	private void updateCanvas(Collection<Group> groupsValues, int mode) {
+		SimpleTimer timer = new SimpleTimer();
+		
+		timer.start("   updating groups and vertices...");
+			// the new canvas is filled, while the old one is still on the pane
+			canvas = new GraphCanvas();
+			canvas.setWidth(getWidth());
+			canvas.setHeight(getHeight());
+			canvas.clear(mode);
 			
-			/* Create a factory to create edges. Opacity edges will depend on their number, 
-			 * to avoid the full pane painting. */
-			EdgeViewFactory edgeViewFactory = new EdgeViewFactory(graph.getAmountEdges(connectionVertex.keySet()),mode);
+			// index of vertex on the canvas for connecting edges
+			final HashMap<Vertex, Integer> connectionVertex = new HashMap<Vertex, Integer>();
 			
-			for (Map.Entry<String, HashSet<String>> entry : graph.exportGraph().entrySet()) {
-				
-				if (connectionVertex.containsKey(entry.getKey())) {
+			for (Group g : groupsValues) {
+				int group = canvas.addGroup(g);
+				for (Link l : g.getLinks()) {
+					Vertex v = l.getFollower();
+					connectionVertex.put(v, canvas.addVertex(v, group));
+				}
+			}
+		timer.finish("...done");
+		
+		timer.start("   updating edges...");
+			int amountEdges = graph.visitEdges(connectionVertex.keySet(), new EdgeVisitor() {
 				
-					VertexView from = connectionVertex.get(entry.getKey());
-					for (String e : entry.getValue()) {
-						if (connectionVertex.containsKey(e)) {
-							EdgeView edgeView = edgeViewFactory.addEdge(from, connectionVertex.get(e));
-							edges.add(edgeView);
-							from.getGroupView().getEdgesView().add(edgeView);
-						}
-					}
-					
+				@Override
+				public void visit(Vertex from, Vertex to, double rank, double points) {
+					canvas.addEdge(connectionVertex.get(from), connectionVertex.get(to));
 				}
 				
-			}
-			System.out.print("adding children...");
-			getChildren().addAll(edges);
+			});
 			
+			EdgeViewFactory edgeViewFactory = new EdgeViewFactory(amountEdges, mode);
+			canvas.finish(edgeViewFactory.getEdgeColor());
 		timer.finish("...done");
+	}
+	
+	/**
+	 * Builds the index of the laid-out elements. It is called by the layout 
+	 * when the groups and the vertices are placed.
+	 */
+	public void index() {
+		int amountGroups = batched ? canvas.getAmountGroups() : groups.size();
+		indexedGroups = new Group[amountGroups];
+		double[] groupX = new double[amountGroups];
+		double[] groupY = new double[amountGroups];
+		double[] groupRadius = new double[amountGroups];
 		
+		int amountVertices = batched ? canvas.getAmountVertices() : vertices.size();
+		indexedVertices = new Vertex[amountVertices];
+		double[] vertexX = new double[amountVertices];
+		double[] vertexY = new double[amountVertices];
+		double[] vertexRadius = new double[amountVertices];
+		
+		// the bundles join the groups instead of the vertices
+		boolean bundled = batched && canvas.isBundled();
+		int amountEdges = bundled ? canvas.getAmountBundles() : (batched ? canvas.getAmountEdges() : edges.size());
+		indexedFrom = new int[amountEdges];
+		indexedTo = new int[amountEdges];
+		indexedWeights = bundled ? new int[amountEdges] : null;
+		
+		if (batched) {
+			for (int g = 0; g < amountGroups; g++) {
+				indexedGroups[g] = canvas.getGroup(g);
+				groupX[g] = canvas.getGroupX(g);
+				groupY[g] = canvas.getGroupY(g);
+				groupRadius[g] = canvas.getGroupRadius(g);
+			}
+			for (int v = 0; v < amountVertices; v++) {
+				indexedVertices[v] = canvas.getVertex(v);
+				vertexX[v] = canvas.getVertexX(v);
+				vertexY[v] = canvas.getVertexY(v);
+				vertexRadius[v] = canvas.getVertexRadius(v);
+			}
+			for (int e = 0; e < amountEdges; e++) {
+				if (bundled) {
+					indexedFrom[e] = canvas.getBundleFrom(e);
+					indexedTo[e] = canvas.getBundleTo(e);
+					indexedWeights[e] = canvas.getBundleWeight(e);
+				} else {
+					indexedFrom[e] = canvas.getEdgeFrom(e);
+					indexedTo[e] = canvas.getEdgeTo(e);
+				}
+			}
+		} else {
+			// the groups are circles in their panes, the vertices are positioned by their centers
+			int g = 0;
+			for (GroupView gv : groups.values()) {
+				indexedGroups[g] = gv.getGroup();
+				groupX[g] = gv.getLayoutX() + gv.getRadiusGroup();
+				groupY[g] = gv.getLayoutY() + gv.getRadiusGroup();
+				groupRadius[g] = gv.getRadiusGroup();
+				g++;
+			}
+			HashMap<VertexView,Integer> indexOfVertices = new HashMap<VertexView,Integer>();
+			int v = 0;
+			for (VertexView vv : vertices) {
+				indexedVertices[v] = vv.getVertex();
+				vertexX[v] = vv.getLayoutX();
+				vertexY[v] = vv.getLayoutY();
+				vertexRadius[v] = vv.getRadius();
+				indexOfVertices.put(vv, v);
+				v++;
+			}
+			int e = 0;
+			for (EdgeView ev : edges) {
+				indexedFrom[e] = indexOfVertices.get(ev.getFrom());
+				indexedTo[e] = indexOfVertices.get(ev.getTo());
+				e++;
+			}
+		}
+		
+		groupGrid = new SpatialGrid(groupX, groupY, groupRadius, amountGroups, getWidth(), getHeight());
+		vertexGrid = new SpatialGrid(vertexX, vertexY, vertexRadius, amountVertices, getWidth(), getHeight());
+		if (bundled) {
+			edgeGrid = new SpatialGrid(groupX, groupY, indexedFrom, indexedTo, amountEdges, getWidth(), getHeight());
+		} else {
+			edgeGrid = new SpatialGrid(vertexX, vertexY, indexedFrom, indexedTo, amountEdges, getWidth(), getHeight());
+		}
+	}
+	
+	/**
+	 * Removes the index of the old elements
+	 */
+	private void clearIndex() {
+		indexedGroups = null;
+		groupGrid = null;
+		indexedVertices = null;
+		vertexGrid = null;
+		indexedFrom = null;
+		indexedTo = null;
+		indexedWeights = null;
+		edgeGrid = null;
+		hideTooltip();
+	}
+	
+	/**
+	 * Finds the group under the point of the pane
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @return leader of group or null
+	 */
+	public String findGroup(double x, double y) {
+		if (updating || groupGrid == null) return null;
+		
+		int g = groupGrid.find(x, y);
+		return g < 0 ? null : indexedGroups[g].getLeader().getId();
+	}
+	
+	/**
+	 * Describes the element under the point of the pane: the vertex,
+	 * if there is no vertex, the edge or the bundle of edges, and if there is no edge, the group
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @return text of the tooltip or null
+	 */
+	public String describeElement(double x, double y) {
+		if (updating || vertexGrid == null) return null;
+		
+		int v = vertexGrid.findNearest(x, y, HOVER_DISTANCE);
+		if (v >= 0) {
+			Vertex vertex = indexedVertices[v];
+			return vertex.getId()+" (popularity: "+vertex.getPopularity()+")";
+		}
+		
+		int e = edgeGrid.findNearest(x, y, HOVER_DISTANCE);
+		if (e >= 0 && indexedWeights != null) {
+			return "between "+indexedGroups[indexedFrom[e]].getLeader().getId()+
+					" and "+indexedGroups[indexedTo[e]].getLeader().getId()+" ("+indexedWeights[e]+" edges)";
+		} else if (e >= 0) {
+			Vertex from = indexedVertices[indexedFrom[e]];
+			Vertex to = indexedVertices[indexedTo[e]];
+			return "from "+from.getId()+" (pop: "+from.getPopularity()+")"+
+					" --> "+to.getId()+ " (pop: "+to.getPopularity()+")";
+		}
+		
+		int g = groupGrid.find(x, y);
+		if (g >= 0) {
+			Group group = indexedGroups[g];
+			Vertex major = group.getMajor();
+			return "Leader: "+group.getLeader().getId()+" (pop: "+group.getLeader().getPopularity()+")"+
+					(major == null ? "" : "\nMajor: "+major.getId()+" (pop: "+major.getPopularity()+")");
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Shows the tooltip of the element under the cursor
+	 * @param event mouse event
+	 */
+	private void showTooltip(MouseEvent event) {
+		String text = describeElement(event.getX(), event.getY());
+		if (text == null) {
+			hideTooltip();
+			return;
+		}
+		
+		if (tooltip == null) {
+			tooltip = new Tooltip();
+		}
+		if (!text.equals(tooltip.getText())) {
+			tooltip.setText(text);
+		}
+		tooltip.show(this, event.getScreenX() + 12, event.getScreenY() + 12);
+	}
+	
+	/**
+	 * Hides the tooltip
+	 */
+	private void hideTooltip() {
+		if (tooltip != null) {
+			tooltip.hide();
+		}
 	}
 	
 	/**
@@ -297,12 +631,20 @@ public class GraphView extends Pane {
 		// set the name of the selected group
 		selectedGroup = nameGroup;
 		
+		// the elements are being built, there is nothing to select yet
+		if (updating) return;
+		
 		// if we are in a mode of viewing the group, then just change the current view groups
 		if (viewSelectedGroup) {
 			setViewSelectedGroup(viewSelectedGroup);
 			return;
 		}
 		
+		if (batched) {
+			canvas.selectGroup(graph.getVertex(nameGroup));
+			return;
+		}
+		
 		// cleanse mark previously selected items
 		if (lastSelected != null) {
 			lastSelected.setSelected(false);
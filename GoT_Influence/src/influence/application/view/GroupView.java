@@ -61,10 +61,6 @@ public class GroupView extends Pane {
 		
 		getChildren().add(view);
 		
-//		Tooltip tooltip = new Tooltip("Leader: "+group.getLeader().getId()+" (pop: "+group.getLeader().getPopularity()+")\n"
-//									+"Major: "+group.getMajor().getId()+" (pop: "+group.getMajor().getPopularity()+")");
-//		Tooltip.install(view, tooltip);
-		
 		this.radiusGroup = radius;
 		this.colorGroup = color;
 	}
@@ -1,7 +1,6 @@
 package influence.application.view;
 
 import influence.application.model.Vertex;
-import javafx.scene.control.Tooltip;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 
@@ -49,9 +48,6 @@ public class VertexView extends Circle {
 		if (mode == 1) {
 			setFill(new Color(0.0,0.0,0.0,0.8));
 			setRadius(getRadius()*2.00);
-			// tooltips (very slow)
-			Tooltip tooltip = new Tooltip(vertex.getId()+ " (popularity: "+vertex.getPopularity()+")");
-			Tooltip.install(this, tooltip);
 		}
 		
 	}
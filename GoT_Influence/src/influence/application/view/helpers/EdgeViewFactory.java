@@ -1,12 +1,16 @@
 package influence.application.view.helpers;
 
+import java.util.Collection;
+
 import influence.application.view.EdgeView;
 import influence.application.view.VertexView;
 import javafx.scene.paint.Color;
 
 /**
  * Helper class to create edges. Determines the opacity and 
- * color of edges based on the total number of edges
+ * color of edges based on the total number of edges.
+ * If the number of edges is not known in advance, the created edges
+ * are counted and colored at the end.
  * @author Muidinov Aider
  *
  */
@@ -29,12 +33,41 @@ public class EdgeViewFactory {
 	}
 	
 	/**
-	 * Add an edge between two vertices
+	 * Constructor of the factory which counts the created edges
+	 * @param mode edges display mode
+	 */
+	public EdgeViewFactory(int mode) {
+		this(0, mode);
+	}
+	
+	/**
+	 * Add an edge between two vertices. The edge is counted, 
+	 * it gets its color when all edges are created.
 	 * @param from Start vertex
 	 * @param to Finishing vertex
 	 * @return edge
 	 */
 	public EdgeView addEdge(VertexView from, VertexView to) {
+		amount++;
+		return new EdgeView(from, to, Color.TRANSPARENT);
+	}
+	
+	/**
+	 * Colors the created edges according to their number
+	 * @param edges created edges
+	 */
+	public void finish(Collection<EdgeView> edges) {
+		Color edgeColor = getEdgeColor();
+		for (EdgeView e : edges) {
+			e.setColorEdge(edgeColor);
+		}
+	}
+	
+	/**
+	 * Gets the color of edges, it is the same for all edges of the graph
+	 * @return color of edges
+	 */
+	public Color getEdgeColor() {
 		Color edgeColor = Color.gray(0.8, 0.1);
 		
 		// The more edges, the lower opacity
@@ -47,6 +80,6 @@ public class EdgeViewFactory {
 			edgeColor = Color.gray(0.01, opacity);
 		}
 		
-		return new EdgeView(from, to, edgeColor);
+		return edgeColor;
 	}
 }
@@ -6,6 +6,7 @@ import influence.application.model.Group;
 import influence.application.model.Link;
 import influence.application.model.SimpleTimer;
 import influence.application.model.Vertex;
+import influence.application.view.GraphCanvas;
 import influence.application.view.GraphView;
 import influence.application.view.GroupView;
 import influence.application.view.VertexView;
@@ -32,44 +33,31 @@ public class GraphLayout {
 	}
 	
 	public void showGraph() {
+		if (graph.isBatched()) {
+			showCanvas(graph.getCanvas());
+			return;
+		}
+		
 		SimpleTimer sTimer = new SimpleTimer();
 		// show groups
 		sTimer.start("   groups processing...");
 		
-		// get position center pane
-		Double centerX = graph.getWidth()/2.0;
-		Double centerY = graph.getHeight()/2.0;
-		
 		for (GroupView groupView : graph.getGroups().values()) {
 			Group currentGroup = groupView.getGroup();
 			int currentSize = currentGroup.size();
-
-			/* Get a random position on the circle. The radius of the circle depends 
-			 * on the coefficient of remoteness from the center of the group.*/
-			Double[] newLocate = randomPosition(centerX, centerY,
-					(1 - currentSize * graph.getKoefRemote()) * Math.min(centerX, centerY));
-			
-			Double centerXGroup = newLocate[0];
-			Double centerYGroup = newLocate[1];
 			
-			// The radius of this group depends on the number of members the group
-			Double radiusGroup = graph.getAverageRadiusGroup() * currentSize * graph.getKoefSize();
+			// center and radius of the group inscribed in the pane
+			double[] place = placeGroup(currentSize);
 			
 			/* Color group will change depending on the number members in the group. 
 			 * The largest group is of red color, the smallest group will be blue. */
 			Color colorGroup = getColorGroup(currentSize, graph.getMaxSize());
 			
-			// Inscribe this group in the pane
-			centerXGroup = Math.max(centerXGroup, radiusGroup);
-			centerYGroup = Math.max(centerYGroup, radiusGroup);
-			centerXGroup = Math.min(centerXGroup, graph.getWidth() - radiusGroup);
-			centerYGroup = Math.min(centerYGroup, graph.getHeight() - radiusGroup);
-			
 			// Set the color and size of the group
-			groupView.setView(radiusGroup, colorGroup);
+			groupView.setView(place[2], colorGroup);
 			
 			// Set the the position of the group
-			groupView.relocate(centerXGroup-radiusGroup, centerYGroup-radiusGroup);
+			groupView.relocate(place[0]-place[2], place[1]-place[2]);
 			
 			// Set the parameters of the group needed to position the vertices
 			groupView.setKoefRemoteVertex(1/getMaxRank(currentGroup));
@@ -84,12 +72,8 @@ public class GraphLayout {
 			Vertex v = vertexView.getVertex();
 			GroupView groupView = vertexView.getGroupView();
 			
-			Double currentRank = v.getRank();
-
-			/* Get a random position on the circle. The radius of the circle depends 
-			 * on the coefficient of remoteness from the center of the vertex.*/
-			Double[] newLocate = randomPosition(groupView.getCenterXCurrentGroup(),
-					groupView.getCenterYCurrentGroup(), (1-currentRank * groupView.getKoefRemoteVertex()) * groupView.getRadiusGroup());
+			Double[] newLocate = placeVertex(groupView.getCenterXCurrentGroup(), groupView.getCenterYCurrentGroup(), 
+					groupView.getRadiusGroup(), v.getRank(), groupView.getKoefRemoteVertex());
 			
 			// for group leaders and followers of different radius of groups
 			Double radius = vertexView.getRadius();
@@ -100,6 +84,87 @@ public class GraphLayout {
 		}
 		sTimer.finish("   ...done");
 		
+		// index the placed elements for hit-testing
+		graph.index();
+	}
+	
+	/**
+	 * Positions the elements of the canvas in the same way as the nodes.
+	 * The coordinates are the centers of groups and vertices.
+	 * @param canvas canvas of the graph
+	 */
+	private void showCanvas(GraphCanvas canvas) {
+		SimpleTimer sTimer = new SimpleTimer();
+		sTimer.start("   groups processing...");
+		
+		double[] koefRemoteVertex = new double[canvas.getAmountGroups()];
+		for (int g = 0; g < canvas.getAmountGroups(); g++) {
+			Group currentGroup = canvas.getGroup(g);
+			int currentSize = currentGroup.size();
+			
+			double[] place = placeGroup(currentSize);
+			Color colorGroup = getColorGroup(currentSize, graph.getMaxSize());
+			
+			canvas.setGroupView(g, place[0], place[1], place[2], colorGroup);
+			koefRemoteVertex[g] = 1/getMaxRank(currentGroup);
+		}
+		sTimer.finish("   ...done");
+		
+		sTimer.start("   vertices processing...");
+		for (int v = 0; v < canvas.getAmountVertices(); v++) {
+			int g = canvas.getVertexGroup(v);
+			
+			Double[] newLocate = placeVertex(canvas.getGroupX(g), canvas.getGroupY(g), 
+					canvas.getGroupRadius(g), canvas.getVertex(v).getRank(), koefRemoteVertex[g]);
+			canvas.relocateVertex(v, newLocate[0], newLocate[1]);
+		}
+		sTimer.finish("   ...done");
+		
+		sTimer.start("   drawing...");
+		graph.index();
+		canvas.draw();
+		sTimer.finish("   ...done");
+	}
+	
+	/**
+	 * Places the group of the given size. The group gets a random position on the circle 
+	 * around the center of the pane, the radius of the circle depends on the coefficient 
+	 * of remoteness from the center of the group. The radius of the group depends 
+	 * on the number of members the group. Then the group is inscribed in the pane.
+	 * @param size the number of members the group
+	 * @return X-axis and Y-axis position of center and radius of the group
+	 */
+	private double[] placeGroup(int size) {
+		// get position center pane
+		Double centerX = graph.getWidth()/2.0;
+		Double centerY = graph.getHeight()/2.0;
+		
+		Double[] newLocate = randomPosition(centerX, centerY,
+				(1 - size * graph.getKoefRemote()) * Math.min(centerX, centerY));
+		double radiusGroup = graph.getAverageRadiusGroup() * size * graph.getKoefSize();
+		
+		// Inscribe this group in the pane
+		double centerXGroup = Math.max(newLocate[0], radiusGroup);
+		double centerYGroup = Math.max(newLocate[1], radiusGroup);
+		centerXGroup = Math.min(centerXGroup, graph.getWidth() - radiusGroup);
+		centerYGroup = Math.min(centerYGroup, graph.getHeight() - radiusGroup);
+		
+		return new double[] {centerXGroup, centerYGroup, radiusGroup};
+	}
+	
+	/**
+	 * Places the vertex in the group. Get a random position on the circle. 
+	 * The radius of the circle depends on the coefficient of remoteness 
+	 * from the center of the vertex.
+	 * @param x X-axis position of center of the group
+	 * @param y Y-axis position of center of the group
+	 * @param radiusGroup radius of the group
+	 * @param rank rank of the vertex
+	 * @param koefRemoteVertex coefficient of remoteness of vertices of the group
+	 * @return coordinates of the center of the vertex
+	 */
+	private Double[] placeVertex(Double x, Double y, Double radiusGroup, double rank, double koefRemoteVertex) {
+		return randomPosition(x, y, (1-rank * koefRemoteVertex) * radiusGroup);
 	}
 	
 	/**
@@ -0,0 +1,261 @@
+package influence.application.view.layout;
+
+/**
+ * Uniform grid over the laid-out elements for hit-testing.
+ * The pane is split into square cells, and each element is registered
+ * in the cells which it covers, so the point is tested only against
+ * the elements of the nearest cells instead of all elements.
+ * The elements are the circles (groups and vertices), registered in all cells
+ * of their bounding boxes, or the segments between the centers of circles (edges),
+ * registered in the cells along the segment.
+ * The cells are kept in two primitive arrays: the start of each cell
+ * and the indexes of elements of all cells one after another.
+ * @author Muidinov Aider
+ *
+ */
+public class SpatialGrid {
+
+	/** the largest amount of cells on one side */
+	private static final int MAX_CELLS = 512;
+
+	// circles by their indexes, the segments join the centers of circles
+	private final double[] x;
+	private final double[] y;
+	private final double[] radius;
+
+	// segments by their indexes: indexes of the starting and the finishing circles, null for circles
+	private final int[] from;
+	private final int[] to;
+
+	// size of the grid
+	private final double cellSize;
+	private final int columns;
+	private final int rows;
+
+	/** cellStarts[c] is the position of the first element of the cell c in items */
+	private int[] cellStarts;
+	private int[] items;
+
+	/**
+	 * Builds the grid of circles. The arrays are not copied, the circles must not be moved after it.
+	 * @param x X coordinates of centers
+	 * @param y Y coordinates of centers
+	 * @param radius radii
+	 * @param amount amount of circles
+	 * @param width width of the pane
+	 * @param height height of the pane
+	 */
+	public SpatialGrid(double[] x, double[] y, double[] radius, int amount, double width, double height) {
+		this(x, y, radius, null, null, amount, width, height);
+	}
+
+	/**
+	 * Builds the grid of segments between the centers of circles.
+	 * The arrays are not copied, the circles must not be moved after it.
+	 * @param x X coordinates of centers
+	 * @param y Y coordinates of centers
+	 * @param from starting circle of each segment
+	 * @param to finishing circle of each segment
+	 * @param amount amount of segments
+	 * @param width width of the pane
+	 * @param height height of the pane
+	 */
+	public SpatialGrid(double[] x, double[] y, int[] from, int[] to, int amount, double width, double height) {
+		this(x, y, null, from, to, amount, width, height);
+	}
+
+	private SpatialGrid(double[] x, double[] y, double[] radius, int[] from, int[] to,
+			int amount, double width, double height) {
+		this.x = x;
+		this.y = y;
+		this.radius = radius;
+		this.from = from;
+		this.to = to;
+
+		// about one element in the cell
+		double size = Math.sqrt(Math.max(width * height, 1.0) / Math.max(amount, 1));
+		size = Math.max(size, Math.max(width, height) / MAX_CELLS);
+		this.cellSize = Math.max(size, 1.0);
+		this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+		this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+
+		// count the elements of each cell, then place them
+		this.cellStarts = new int[columns * rows + 1];
+		for (int i = 0; i < amount; i++) {
+			register(i, null);
+		}
+		for (int c = 0; c < columns * rows; c++) {
+			cellStarts[c+1] += cellStarts[c];
+		}
+
+		this.items = new int[cellStarts[columns * rows]];
+		int[] positions = new int[columns * rows];
+		for (int i = 0; i < amount; i++) {
+			register(i, positions);
+		}
+	}
+
+	/**
+	 * Finds the circle under the point. If several circles contain the point,
+	 * the smallest of them is taken, it is the most exact hit.
+	 * @param px X coordinate of the point
+	 * @param py Y coordinate of the point
+	 * @return index of the circle or -1 if there is no circle under the point
+	 */
+	public int find(double px, double py) {
+		int c = row(py) * columns + column(px);
+
+		int found = -1;
+		for (int j = cellStarts[c]; j < cellStarts[c+1]; j++) {
+			int i = items[j];
+			double dx = px - x[i];
+			double dy = py - y[i];
+			if (dx * dx + dy * dy <= radius[i] * radius[i]
+					&& (found < 0 || radius[i] < radius[found])) {
+				found = i;
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Finds the element nearest to the point. The distance to the circle
+	 * is the distance to its border, it is zero inside the circle.
+	 * If several elements are at the same distance, the first of them is taken.
+	 * @param px X coordinate of the point
+	 * @param py Y coordinate of the point
+	 * @param tolerance the largest distance to the element
+	 * @return index of the element or -1 if there is no element near the point
+	 */
+	public int findNearest(double px, double py, double tolerance) {
+		int found = -1;
+		double minDistance = tolerance;
+
+		for (int row = row(py - tolerance); row <= row(py + tolerance); row++) {
+			for (int column = column(px - tolerance); column <= column(px + tolerance); column++) {
+				int c = row * columns + column;
+				for (int j = cellStarts[c]; j < cellStarts[c+1]; j++) {
+					int i = items[j];
+					double distance = from == null ? distanceToCircle(i, px, py) : distanceToSegment(i, px, py);
+					// for the equal distances the element with the smallest index wins
+					if (distance < minDistance || (distance == minDistance && (found < 0 || i < found))) {
+						minDistance = distance;
+						found = i;
+					}
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Gets the distance from the point to the border of circle
+	 * @param i index of circle
+	 * @param px X coordinate of the point
+	 * @param py Y coordinate of the point
+	 * @return distance, zero inside the circle
+	 */
+	private double distanceToCircle(int i, double px, double py) {
+		return Math.max(0.0, Math.hypot(px - x[i], py - y[i]) - radius[i]);
+	}
+
+	/**
+	 * Gets the distance from the point to the segment
+	 * @param i index of segment
+	 * @param px X coordinate of the point
+	 * @param py Y coordinate of the point
+	 * @return distance
+	 */
+	private double distanceToSegment(int i, double px, double py) {
+		double x1 = x[from[i]], y1 = y[from[i]];
+		double dx = x[to[i]] - x1;
+		double dy = y[to[i]] - y1;
+		double length = dx * dx + dy * dy;
+
+		// the projection of the point on the segment
+		double t = length == 0 ? 0.0 : ((px - x1) * dx + (py - y1) * dy) / length;
+		t = Math.min(1.0, Math.max(0.0, t));
+
+		return Math.hypot(px - x1 - t * dx, py - y1 - t * dy);
+	}
+
+	/**
+	 * Registers the element in its cells
+	 * @param i index of element
+	 * @param positions amount of placed elements of each cell,
+	 * null to count the elements of cells
+	 */
+	private void register(int i, int[] positions) {
+		if (from == null) {
+			for (int row = row(y[i] - radius[i]); row <= row(y[i] + radius[i]); row++) {
+				for (int column = column(x[i] - radius[i]); column <= column(x[i] + radius[i]); column++) {
+					add(row * columns + column, i, positions);
+				}
+			}
+			return;
+		}
+
+		// the cells along the segment, from one border of cell to the next one
+		double x1 = x[from[i]], y1 = y[from[i]];
+		double dx = x[to[i]] - x1;
+		double dy = y[to[i]] - y1;
+		int column = column(x1), row = row(y1);
+		int lastColumn = column(x[to[i]]), lastRow = row(y[to[i]]);
+		int stepColumn = dx > 0 ? 1 : -1;
+		int stepRow = dy > 0 ? 1 : -1;
+		double nextX = dx == 0 ? Double.POSITIVE_INFINITY
+				: ((column + (dx > 0 ? 1 : 0)) * cellSize - x1) / dx;
+		double nextY = dy == 0 ? Double.POSITIVE_INFINITY
+				: ((row + (dy > 0 ? 1 : 0)) * cellSize - y1) / dy;
+		double deltaX = dx == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dx);
+		double deltaY = dy == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dy);
+
+		add(row * columns + column, i, positions);
+		while (column != lastColumn || row != lastRow) {
+			if (nextX < nextY) {
+				column += stepColumn;
+				nextX += deltaX;
+			} else {
+				row += stepRow;
+				nextY += deltaY;
+			}
+			// the ends outside the pane are in the border cells
+			if (column < 0 || column >= columns || row < 0 || row >= rows) break;
+			add(row * columns + column, i, positions);
+		}
+	}
+
+	/**
+	 * Counts or places the element in the cell
+	 * @param c cell
+	 * @param i index of element
+	 * @param positions amount of placed elements of each cell, null to count
+	 */
+	private void add(int c, int i, int[] positions) {
+		if (positions == null) {
+			cellStarts[c + 1]++;
+		} else {
+			items[cellStarts[c] + positions[c]++] = i;
+		}
+	}
+
+	/**
+	 * Gets the column of the cell, the points outside the pane are in the border cells
+	 * @param px X coordinate
+	 * @return column
+	 */
+	private int column(double px) {
+		return Math.min(columns - 1, Math.max(0, (int) (px / cellSize)));
+	}
+
+	/**
+	 * Gets the row of the cell, the points outside the pane are in the border cells
+	 * @param py Y coordinate
+	 * @return row
+	 */
+	private int row(double py) {
+		return Math.min(rows - 1, Math.max(0, (int) (py / cellSize)));
+	}
+}
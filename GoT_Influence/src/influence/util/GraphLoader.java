@@ -9,8 +9,6 @@ package influence.util;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
 
 import influence.application.model.Graph;
 import influence.application.model.SimpleTimer;
@@ -24,7 +22,6 @@ public class GraphLoader {
      */ 
     public static void loadGraph(Graph g, String filename, String delimiter) {
         SimpleTimer timer = new SimpleTimer();
-    	Set<String> seen = new HashSet<String>();
         FileReader myFile = null;
         BufferedReader buff = null;
         
@@ -52,14 +49,9 @@ public class GraphLoader {
 				if (v1.equals(v2)) {
 					continue;
 				}
-			    if (!seen.contains(v1)) {
-			        g.addVertex(v1);
-			        seen.add(v1);
-			    }
-			    if (!seen.contains(v2)) {
-			        g.addVertex(v2);
-			        seen.add(v2);
-			    }
+			    // the graph adds the vertex only once and keeps its name in its own table
+			    g.addVertex(v1);
+			    g.addVertex(v2);
 			    g.addEdge(v1, v2, v3);
 			}
 		} catch (IOException e) {
@@ -0,0 +1,98 @@
+package influence.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import influence.application.model.Graph;
+import influence.application.model.SimpleTimer;
+import influence.application.model.Type;
+
+/**
+ * Loads graph with data from a file mapped into memory.
+ * Bytes of the file are scanned directly without reading lines
+ * and splitting them into the strings, the names are added
+ * to the table of the graph from their bytes. The result is the same as of GraphLoader.
+ * @author Muidinov Aider
+ *
+ */
+public class MappedGraphLoader {
+
+	/** the maximum size of the part of file mapped into memory at once */
+	private static final long MAX_REGION = Integer.MAX_VALUE;
+
+	/**
+	 * Loads graph with data from a file.
+	 * The file should consist of lines with 3 strings each, corresponding
+	 * to a "from" vertex and a "to" vertex. And type of edges.
+	 * @param g graph
+	 * @param filename path to the file
+	 * @param delimiter fields delimiter
+	 */
+	public static void loadGraph(final Graph g, String filename, char delimiter) {
+		SimpleTimer timer = new SimpleTimer();
+		final Charset charset = Charset.defaultCharset();
+		final RowParser parser = new RowParser(delimiter, charset);
+		long size = 0;
+
+		timer.start("   loading '"+filename+"'...");
+
+		// adding new vertices as they are found and connecting them with edges.
+		RowParser.RowHandler handler = new RowParser.RowHandler() {
+
+			@Override
+			public int name(ByteBuffer buffer, int start, int end) {
+				return g.addVertex(buffer, start, end, charset);
+			}
+
+			@Override
+			public void row(int from, int to, Type type) {
+				if (from == to) return;
+
+				g.addEdge(from, to, type);
+			}
+
+		};
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			size = channel.size();
+			long position = 0;
+
+			while (position < size) {
+				long length = Math.min(size - position, MAX_REGION);
+				boolean last = position + length == size;
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+				int parsed = parser.parse(buffer, 0, (int) length, last, handler);
+				if (parsed == 0) {
+					throw new IOException("line is too long at position "+position);
+				}
+				position += parsed;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		timer.finish("...done");
+		printThroughput(size, parser.getAmountLines(), timer.secResult());
+	}
+
+	/**
+	 * Prints the loading speed
+	 * @param size size of data in bytes
+	 * @param amountLines amount of read lines
+	 * @param sec loading time in seconds
+	 */
+	static void printThroughput(long size, int amountLines, float sec) {
+		double time = Math.max(sec, 0.001);
+
+		System.out.println("   read "+amountLines+" lines, "
+				+String.format("%.2f", size / 1048576.0 / time)+" MB/s, "
+				+String.format("%.0f", amountLines / time)+" rows/s");
+	}
+}
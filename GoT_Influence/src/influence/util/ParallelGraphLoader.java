@@ -0,0 +1,284 @@
+package influence.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import influence.application.model.Graph;
+import influence.application.model.SimpleTimer;
+import influence.application.model.SymbolTable;
+import influence.application.model.Type;
+
+/**
+ * Loads graph with data from many files or from one very large file.
+ * Files are split into chunks on the line boundaries and the chunks
+ * are parsed in parallel, each into its own buffer of rows. Then the buffers
+ * are added to the graph one by one in the order of files and chunks,
+ * therefore the graph is the same as after the sequential loading of the files.
+ * The names are added to the graph from the bytes of the chunks, which stay mapped until then.
+ * One file, which is not split, is loaded by MappedGraphLoader straight into the graph.
+ * @author Muidinov Aider
+ *
+ */
+public class ParallelGraphLoader {
+
+	/** the minimum size of chunk, smaller files are not split */
+	private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+	/** the maximum size of chunk, it must be mapped into memory at once */
+	private static final long MAX_CHUNK_SIZE = 1 << 30;
+
+	/** the amount of chunks for each thread, allows to balance the load of threads */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * Loads graph with data from the files using the common pool
+	 * @param g graph
+	 * @param filenames paths to the files
+	 * @param delimiter fields delimiter
+	 */
+	public static void loadGraph(Graph g, List<String> filenames, char delimiter) {
+		loadGraph(g, filenames, delimiter, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Loads graph with data from the files.
+	 * The files should consist of lines with 3 strings each, corresponding
+	 * to a "from" vertex and a "to" vertex. And type of edges.
+	 * @param g graph
+	 * @param filenames paths to the files
+	 * @param delimiter fields delimiter
+	 * @param pool pool of threads for parsing
+	 */
+	public static void loadGraph(Graph g, List<String> filenames, char delimiter, ForkJoinPool pool) {
+		// one chunk is not parsed in parallel, so the rows are not buffered
+		if (filenames.size() == 1 && new File(filenames.get(0)).length() <= MIN_CHUNK_SIZE) {
+			MappedGraphLoader.loadGraph(g, filenames.get(0), delimiter);
+			return;
+		}
+
+		SimpleTimer timer = new SimpleTimer();
+		SimpleTimer total = new SimpleTimer();
+		List<ForkJoinTask<ChunkRows>> tasks = new ArrayList<ForkJoinTask<ChunkRows>>();
+		long size = 0;
+		int amountLines = 0;
+
+		total.start(null);
+		timer.start("   parsing "+filenames.size()+" file(s)...");
+		try {
+			for (String filename : filenames) {
+				for (final Chunk chunk : splitFile(filename, pool.getParallelism())) {
+					size += chunk.length;
+					tasks.add(pool.submit(new Callable<ChunkRows>() {
+
+						@Override
+						public ChunkRows call() throws IOException {
+							return parseChunk(chunk, delimiter);
+						}
+
+					}));
+				}
+			}
+
+			for (ForkJoinTask<ChunkRows> task : tasks) {
+				task.get();
+			}
+		} catch (IOException | InterruptedException | ExecutionException e) {
+			e.printStackTrace();
+			for (ForkJoinTask<ChunkRows> task : tasks) {
+				task.cancel(true);
+			}
+			return;
+		}
+		timer.finish("...done");
+
+		timer.start("   adding rows to the graph...");
+		for (ForkJoinTask<ChunkRows> task : tasks) {
+			ChunkRows rows = task.join();
+			rows.addTo(g);
+			amountLines += rows.parser.getAmountLines();
+		}
+		timer.finish("...done");
+		total.finish(null);
+
+		MappedGraphLoader.printThroughput(size, amountLines, total.secResult());
+	}
+
+	/**
+	 * Splits the file into chunks on the line boundaries
+	 * @param filename path to the file
+	 * @param parallelism amount of threads
+	 * @return list of chunks
+	 * @throws IOException
+	 */
+	private static List<Chunk> splitFile(String filename, int parallelism) throws IOException {
+		List<Chunk> chunks = new ArrayList<Chunk>();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long chunkSize = size / (parallelism * CHUNKS_PER_THREAD);
+			chunkSize = Math.min(Math.max(chunkSize, MIN_CHUNK_SIZE), MAX_CHUNK_SIZE);
+
+			long start = 0;
+			while (start < size) {
+				long end = size;
+				if (size - start > chunkSize) {
+					end = nextLine(channel, start + chunkSize);
+				}
+				chunks.add(new Chunk(filename, start, end - start));
+				start = end;
+			}
+		}
+
+		return chunks;
+	}
+
+	/**
+	 * Finds the beginning of the next line
+	 * @param channel file
+	 * @param position position from which the search begins
+	 * @return position after the nearest end of line, or the size of the file
+	 * @throws IOException
+	 */
+	private static long nextLine(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+		while (true) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) return channel.size();
+
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') return position + i + 1;
+			}
+			position += read;
+		}
+	}
+
+	/**
+	 * Parses the chunk of file into the buffer of rows
+	 * @param chunk chunk of file
+	 * @param delimiter fields delimiter
+	 * @return rows of the chunk
+	 * @throws IOException
+	 */
+	private static ChunkRows parseChunk(Chunk chunk, char delimiter) throws IOException {
+		Charset charset = Charset.defaultCharset();
+
+		try (FileChannel channel = FileChannel.open(Paths.get(chunk.filename), StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.length);
+			ChunkRows rows = new ChunkRows(new RowParser(delimiter, charset), buffer, charset);
+			rows.parser.parse(buffer, 0, (int) chunk.length, true, rows);
+			return rows;
+		}
+	}
+
+	/**
+	 * The part of file, it begins and ends on the line boundaries
+	 */
+	private static class Chunk {
+		private final String filename;
+		private final long start;
+		private final long length;
+
+		private Chunk(String filename, long start, long length) {
+			this.filename = filename;
+			this.start = start;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Buffer of the rows parsed from the chunk.
+	 * Rows are stored as ids of the names of the chunk, each name
+	 * is also kept as the position of its first occurrence in the chunk.
+	 */
+	private static class ChunkRows implements RowParser.RowHandler {
+		private final RowParser parser;
+		private final ByteBuffer buffer;
+		private final Charset charset;
+		private final SymbolTable names;
+		private int[] nameStart;
+		private int[] nameEnd;
+		private int amountNames;
+		private int[] from;
+		private int[] to;
+		private Type[] type;
+		private int size;
+
+		private ChunkRows(RowParser parser, ByteBuffer buffer, Charset charset) {
+			this.parser = parser;
+			this.buffer = buffer;
+			this.charset = charset;
+			this.names = new SymbolTable();
+			this.nameStart = new int[1024];
+			this.nameEnd = new int[1024];
+			this.amountNames = 0;
+			this.from = new int[1024];
+			this.to = new int[1024];
+			this.type = new Type[1024];
+			this.size = 0;
+		}
+
+		@Override
+		public int name(ByteBuffer buffer, int start, int end) {
+			int id = names.intern(buffer, start, end, charset);
+			if (id < amountNames) return id;
+
+			// the table gives ids in the order of addition
+			if (id == nameStart.length) {
+				nameStart = Arrays.copyOf(nameStart, id * 2);
+				nameEnd = Arrays.copyOf(nameEnd, id * 2);
+			}
+			nameStart[id] = start;
+			nameEnd[id] = end;
+			amountNames++;
+
+			return id;
+		}
+
+		@Override
+		public void row(int from, int to, Type type) {
+			if (from == to) return;
+
+			if (size == this.from.length) {
+				this.from = Arrays.copyOf(this.from, size * 2);
+				this.to = Arrays.copyOf(this.to, size * 2);
+				this.type = Arrays.copyOf(this.type, size * 2);
+			}
+			this.from[size] = from;
+			this.to[size] = to;
+			this.type[size] = type;
+			size++;
+		}
+
+		/**
+		 * Adds the rows to the graph. The names are added in the order 
+		 * of their first occurrence, as the sequential loading adds them.
+		 * The graph adds the vertex only once.
+		 * @param g graph
+		 */
+		private void addTo(Graph g) {
+			int[] symbols = new int[amountNames];
+			for (int id = 0; id < symbols.length; id++) {
+				symbols[id] = g.addVertex(buffer, nameStart[id], nameEnd[id], charset);
+			}
+
+			for (int i = 0; i < size; i++) {
+				g.addEdge(symbols[from[i]], symbols[to[i]], type[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package influence.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import influence.application.model.Edge;
+import influence.application.model.SymbolTable;
+import influence.application.model.Type;
+
+/**
+ * Parser of the rows of interactions directly from the bytes of a file.
+ * Each row consists of 3 fields separated by the delimiter: the "from" vertex,
+ * the "to" vertex and the type of interaction. Rows are split in the same way
+ * as String.split does it, other rows are skipped, as the rows of the vertex
+ * with itself. The handler adds the names from the bytes of the file,
+ * and each different label is turned into the type of edge only once.
+ * @author Muidinov Aider
+ *
+ */
+class RowParser {
+
+	/** labels of interactions known in advance */
+	private static final String[] LABELS = {
+			"User Liked Comment",
+			"User Liked Post",
+			"User Commented Comment",
+			"User Commented Post"
+	};
+
+	/**
+	 * Receiver of the rows read by the parser
+	 */
+	interface RowHandler {
+		/**
+		 * Adds the name of vertex
+		 * @param buffer bytes of file
+		 * @param start the first byte of name
+		 * @param end the byte after the last byte of name
+		 * @return id of the name
+		 */
+		int name(ByteBuffer buffer, int start, int end);
+
+		/**
+		 * Handles the row
+		 * @param from id of the name of "from" vertex
+		 * @param to id of the name of "to" vertex
+		 * @param type type of interaction
+		 */
+		void row(int from, int to, Type type);
+	}
+
+	/** fields delimiter */
+	private byte delimiter;
+
+	/** charset of the file */
+	private Charset charset;
+
+	/** labels of interactions */
+	private SymbolTable labels;
+
+	/** types of interactions by the ids of their labels, null until the label is met */
+	private Type[] types;
+
+	/** amount of the read lines */
+	private int amountLines;
+
+	/**
+	 * The main constructor
+	 * @param delimiter fields delimiter, it must be one byte character
+	 * @param charset charset of the file
+	 */
+	public RowParser(char delimiter, Charset charset) {
+		if (delimiter > 0x7f) {
+			throw new IllegalArgumentException("delimiter must be ASCII character: "+delimiter);
+		}
+
+		this.delimiter = (byte) delimiter;
+		this.charset = charset;
+		this.labels = new SymbolTable(LABELS.length);
+		this.types = new Type[LABELS.length];
+		this.amountLines = 0;
+
+		for (String label : LABELS) {
+			typeOf(labels.intern(label));
+		}
+	}
+
+	/**
+	 * Gets the amount of the read lines
+	 * @return amount of lines
+	 */
+	public int getAmountLines() {
+		return amountLines;
+	}
+
+	/**
+	 * Parses the lines in the given part of buffer.
+	 * The last line without the end of line is parsed only if it is the end of file.
+	 * @param buffer bytes of file
+	 * @param start the first byte
+	 * @param end the byte after the last byte
+	 * @param last true if the part is the end of file
+	 * @param handler receiver of rows
+	 * @return the position after the last parsed line
+	 */
+	public int parse(ByteBuffer buffer, int start, int end, boolean last, RowHandler handler) {
+		int lineStart = start;
+
+		while (lineStart < end) {
+			int lineEnd = lineStart;
+			byte b = 0;
+			while (lineEnd < end) {
+				b = buffer.get(lineEnd);
+				if (b == '\n' || b == '\r') break;
+				lineEnd++;
+			}
+
+			// the rest of the line is in the next part of file
+			if (!last && (lineEnd == end || (b == '\r' && lineEnd + 1 == end))) {
+				return lineStart;
+			}
+
+			parseLine(buffer, lineStart, lineEnd, handler);
+			amountLines++;
+
+			// skip the end of line
+			if (lineEnd < end && buffer.get(lineEnd) == '\r') lineEnd++;
+			if (lineEnd < end && buffer.get(lineEnd) == '\n') lineEnd++;
+			lineStart = lineEnd;
+		}
+
+		return end;
+	}
+
+	/**
+	 * Splits the line into fields and passes it to the handler
+	 * @param buffer bytes of file
+	 * @param start the first byte of line
+	 * @param end the byte after the last byte of line
+	 * @param handler receiver of rows
+	 */
+	private void parseLine(ByteBuffer buffer, int start, int end, RowHandler handler) {
+		int amountDelimiters = 0;
+		int trailingDelimiters = 0;
+		// positions of the first three delimiters
+		int first = -1;
+		int second = -1;
+		int third = end;
+
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == delimiter) {
+				if (amountDelimiters == 0) {
+					first = i;
+				} else if (amountDelimiters == 1) {
+					second = i;
+				} else if (amountDelimiters == 2) {
+					third = i;
+				}
+				amountDelimiters++;
+				trailingDelimiters++;
+			} else {
+				trailingDelimiters = 0;
+			}
+		}
+
+		// as String.split, trailing empty fields are not counted
+		if (amountDelimiters + 1 - trailingDelimiters != 3) return;
+
+		// the same names are the same bytes, so the vertex with itself is not added
+		if (equalFields(buffer, start, first, first + 1, second)) return;
+
+		int from = handler.name(buffer, start, first);
+		int to = handler.name(buffer, first + 1, second);
+		int label = labels.intern(buffer, second + 1, third, charset);
+
+		handler.row(from, to, typeOf(label));
+	}
+
+	/**
+	 * Compares the bytes of two fields
+	 * @param buffer bytes of file
+	 * @param start1 the first byte of the first field
+	 * @param end1 the byte after the first field
+	 * @param start2 the first byte of the second field
+	 * @param end2 the byte after the second field
+	 * @return true if the fields are equal
+	 */
+	private static boolean equalFields(ByteBuffer buffer, int start1, int end1, int start2, int end2) {
+		if (end1 - start1 != end2 - start2) return false;
+
+		for (int i = start1, j = start2; i < end1; i++, j++) {
+			if (buffer.get(i) != buffer.get(j)) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the type of interaction by its label. The label is turned 
+	 * into the type, when it is met for the first time.
+	 * @param label id of label
+	 * @return type of interaction
+	 */
+	private Type typeOf(int label) {
+		if (label >= types.length) {
+			types = Arrays.copyOf(types, Math.max(types.length * 2, label + 1));
+		}
+		if (types[label] == null) {
+			types[label] = Edge.getFromString(labels.name(label));
+		}
+
+		return types[label];
+	}
+}
@@ -0,0 +1,111 @@
+package influence.application.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the compact graph calculates the same ranks, edges
+ * and opinion leaders as FacebookGraph for the same interactions.
+ * @author Muidinov Aider
+ *
+ */
+public class CompactGraphTest {
+
+	private static final String[] TYPES = {"User Liked Post", "User Liked Comment",
+			"User Commented Post", "User Commented Comment", "FEEDBACK"};
+
+	private static final int USERS = 40;
+
+	private static final int INTERACTIONS = 600;
+
+	@Test
+	public void sameAsFacebookGraph() {
+		Random random = new Random(1);
+		for (int i = 0; i < 20; i++) {
+			FacebookGraph facebook = new FacebookGraph();
+			CompactGraph compact = new CompactGraph();
+			for (int j = 0; j < INTERACTIONS; j++) {
+				String from = "u"+random.nextInt(USERS);
+				String to = "u"+random.nextInt(USERS);
+				String type = TYPES[random.nextInt(TYPES.length)];
+				facebook.addEdge(from, to, type);
+				compact.addEdge(from, to, type);
+			}
+			assertSameGraph(facebook, compact);
+		}
+	}
+
+	@Test
+	public void repeatedInteractionsAreMerged() {
+		FacebookGraph facebook = new FacebookGraph();
+		CompactGraph compact = new CompactGraph();
+		String[][] rows = {{"A", "B", TYPES[0]}, {"A", "B", TYPES[2]}, {"A", "B", TYPES[0]},
+				{"B", "A", TYPES[1]}, {"C", "A", TYPES[3]}, {"C", "B", TYPES[2]}};
+		for (String[] row : rows) {
+			facebook.addEdge(row[0], row[1], row[2]);
+			compact.addEdge(row[0], row[1], row[2]);
+		}
+		assertSameGraph(facebook, compact);
+	}
+
+	/**
+	 * Initializes both graphs and compares them
+	 * @param facebook graph with the groups
+	 * @param compact compact graph with the same interactions
+	 */
+	private static void assertSameGraph(FacebookGraph facebook, CompactGraph compact) {
+		facebook.initialize();
+		compact.initialize();
+
+		assertEquals(facebook.size(), compact.size());
+		assertEquals(facebook.getAmountEdges(), compact.getAmountEdges());
+		for (Vertex v : facebook.getVertices()) {
+			Vertex w = compact.getVertex(v.getId());
+			assertNotNull(v.getId(), w);
+			assertEquals(v.getId(), v.getRank(), w.getRank(), 0);
+			assertEquals(v.getId(), v.getPopularity(), w.getPopularity(), 0);
+			assertEquals(v.getId(), v.getBaseRank(), w.getBaseRank(), 0);
+			assertEquals(v.getId(), v.getBasePopularity(), w.getBasePopularity(), 0);
+			assertEquals(v.getId(), edges(facebook.getEgonet(v)), edges(compact.getEgonet(w)));
+			assertEquals(v.getId(), edges(facebook.getFollowers(v)), edges(compact.getFollowers(w)));
+		}
+		assertEquals(facebook.exportGraph(), compact.exportGraph());
+		for (double percent : new double[] {10, 25, 50, 75, 100}) {
+			assertEquals(ids(facebook.getOpinionLeaders(percent)), ids(compact.getOpinionLeaders(percent)));
+		}
+	}
+
+	/**
+	 * Describes the edges in their order
+	 * @param edges edges
+	 * @return ids of the vertices, ranks and points of popularity
+	 */
+	private static List<String> edges(List<Edge> edges) {
+		List<String> result = new ArrayList<String>();
+		for (Edge e : edges) {
+			result.add(e.getBegin().getId()+">"+e.getEnd().getId()+" "+e.getRank()+" "+e.getPointsPopularity());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets the ids of the vertices in their order
+	 * @param vertices vertices
+	 * @return ids
+	 */
+	private static List<String> ids(List<Vertex> vertices) {
+		List<String> result = new ArrayList<String>();
+		for (Vertex v : vertices) {
+			result.add(v.getId());
+		}
+
+		return result;
+	}
+}
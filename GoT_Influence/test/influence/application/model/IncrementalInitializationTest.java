@@ -0,0 +1,166 @@
+package influence.application.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the incremental initialization. The interactions are added to the graph
+ * in the incremental mode by portions, and after each portion the merged edges
+ * and the ranks are compared with the graph initialized once from all interactions
+ * added so far. The sequences mix the Likes, the Comments and the Feedbacks
+ * of the same pairs of users in both directions.
+ * @author Muidinov Aider
+ *
+ */
+public class IncrementalInitializationTest {
+
+	/** types of the interactions of sequences */
+	private static final String[] TYPES = {"User Liked Post", "User Liked Comment",
+			"User Commented Post", "User Commented Comment", "FEEDBACK"};
+
+	/** amount of users of the random sequence */
+	private static final int USERS = 12;
+
+	/** amount of interactions of the random sequence */
+	private static final int INTERACTIONS = 120;
+
+	/** amount of portions, after each of them the graph is initialized */
+	private static final int PORTIONS = 6;
+
+	/** amount of random sequences */
+	private static final int SEQUENCES = 50;
+
+	@Test
+	public void commentAddedToInitializedLike() {
+		// the Comment is added to the Like of the same pair after the initialization
+		List<String[]> interactions = new ArrayList<String[]>();
+		interactions.add(new String[] {"A", "B", "User Liked Post"});
+		interactions.add(new String[] {"A", "B", "User Commented Post"});
+
+		check(interactions, new int[] {1, 2}, false);
+		check(interactions, new int[] {1, 2}, true);
+	}
+
+	@Test
+	public void randomSequences() {
+		Random random = new Random(1);
+		for (int i = 0; i < SEQUENCES; i++) {
+			List<String[]> interactions = randomInteractions(random);
+			check(interactions, randomPortions(random, interactions.size()), false);
+		}
+	}
+
+	@Test
+	public void randomAggregatedSequences() {
+		Random random = new Random(1);
+		for (int i = 0; i < SEQUENCES; i++) {
+			List<String[]> interactions = randomInteractions(random);
+			check(interactions, randomPortions(random, interactions.size()), true);
+		}
+	}
+
+	/**
+	 * Creates the random interactions of a few users, so the pairs are repeated
+	 * @param random generator
+	 * @return interactions as from, to and type
+	 */
+	private static List<String[]> randomInteractions(Random random) {
+		List<String[]> interactions = new ArrayList<String[]>();
+		for (int i = 0; i < INTERACTIONS; i++) {
+			int from = random.nextInt(USERS);
+			int to = random.nextInt(USERS - 1);
+			if (to >= from) to++;
+			interactions.add(new String[] {"user "+from, "user "+to, TYPES[random.nextInt(TYPES.length)]});
+		}
+		return interactions;
+	}
+
+	/**
+	 * Splits the interactions into the portions
+	 * @param random generator
+	 * @param amount amount of interactions
+	 * @return ascending ends of the portions, the last one is the amount
+	 */
+	private static int[] randomPortions(Random random, int amount) {
+		int[] ends = new int[PORTIONS];
+		for (int i = 0; i < PORTIONS - 1; i++) {
+			ends[i] = random.nextInt(amount + 1);
+		}
+		ends[PORTIONS - 1] = amount;
+		Arrays.sort(ends);
+		return ends;
+	}
+
+	/**
+	 * Adds the interactions to the incremental graph by portions and compares it 
+	 * after each portion with the full initialization
+	 * @param interactions interactions as from, to and type
+	 * @param portions ascending ends of the portions
+	 * @param aggregated the graphs aggregate the repeated interactions
+	 */
+	private static void check(List<String[]> interactions, int[] portions, boolean aggregated) {
+		FacebookGraph incremental = new FacebookGraph();
+		incremental.setIncremental(true);
+		incremental.setAggregated(aggregated);
+
+		int added = 0;
+		for (int end : portions) {
+			for (; added < end; added++) {
+				String[] i = interactions.get(added);
+				incremental.newEdge(i[0], i[1], i[2]);
+			}
+			incremental.initialize();
+
+			FacebookGraph full = new FacebookGraph();
+			full.setAggregated(aggregated);
+			for (int j = 0; j < end; j++) {
+				String[] i = interactions.get(j);
+				full.newEdge(i[0], i[1], i[2]);
+			}
+			full.initialize();
+
+			assertSameGraph("after "+end+" interactions: ", full, incremental);
+		}
+	}
+
+	/**
+	 * Compares the merged edges and the ranks of vertices
+	 * @param prefix description of the compared state
+	 * @param full graph of the full initialization
+	 * @param incremental graph of the incremental initialization
+	 */
+	private static void assertSameGraph(String prefix, FacebookGraph full, FacebookGraph incremental) {
+		assertEquals(prefix+"users", full.size(), incremental.size());
+		assertEquals(prefix+"edges", full.getAmountEdges(), incremental.getAmountEdges());
+
+		for (Vertex v : full.getVertices()) {
+			Vertex u = incremental.getVertex(v.getId());
+			String user = prefix+"user "+v.getId();
+			assertNotNull(user, u);
+			assertEquals(user+" base rank", v.getBaseRank(), u.getBaseRank(), 0);
+			assertEquals(user+" rank", v.getRank(), u.getRank(), 0);
+			assertEquals(user+" base popularity", v.getBasePopularity(), u.getBasePopularity(), 0);
+			assertEquals(user+" popularity", v.getPopularity(), u.getPopularity(), 0);
+
+			List<Edge> fullEdges = full.getEgonet(v);
+			List<Edge> incrementalEdges = incremental.getEgonet(u);
+			assertEquals(user+" edges", fullEdges.size(), incrementalEdges.size());
+			for (int i = 0; i < fullEdges.size(); i++) {
+				Edge e = fullEdges.get(i);
+				Edge f = incrementalEdges.get(i);
+				String edge = prefix+"edge "+e;
+				assertEquals(edge, e.getEnd().getId(), f.getEnd().getId());
+				assertEquals(edge+" rank", e.getRank(), f.getRank(), 0);
+				assertEquals(edge+" points", e.getPointsPopularity(), f.getPointsPopularity(), 0);
+				assertEquals(edge+" koefficient", e.getKoefRank(), f.getKoefRank(), 0);
+			}
+		}
+	}
+}